@@ -1,12 +1,21 @@
 package sudokuBackend;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.SplittableRandom;
 
 
 /**
  * Contains information about a 9X9 board, 
  * with associated methods to set and get specific cells.
  * 
+ * Cells are packed into a byte[81] (value in the low nibble, 0 when empty, plus a
+ * FIXED flag for unchangeable cells). Every row, column and box keeps a 9-bit mask
+ * of the values it holds, so a placement check is a single mask test. Live counts of
+ * filled cells and of repeated values make the completion queries constant-time.
+ * The cells are also kept packed one row to a 64-bit word, in the layout of
+ * BoardSnapshot, so taking a snapshot copies nine words.
  */
 public abstract class AbstractBoard implements Board, Serializable {
 
@@ -14,18 +23,8 @@ public abstract class AbstractBoard implements Board, Serializable {
 	 * Creates a new empty board with all cells being empty and changeable.
 	 */
 	public AbstractBoard() {
-		board = new Cell[9][9];
-		int i = 0;
-		int j = 0;
-		
-		while (i <= MAX_ROW) {
-			while (j <= MAX_COLUMN) {
-	    		board[i][j] = new Cell();
-	    		j++;
-	    	}
-	    	j = 0;
-	    	i++;
-	    }
+		cells = new byte[BoardGeometry.CELLS];
+		rebuildMasks();
 	}
 	
     /**
@@ -34,9 +33,14 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @param column the column of the cell to return.
      * @return the value stored in the cell at row/column.
      * @pre cellIsEmpty(row,column) == false.
+     * @throws IllegalStateException if the cell is empty.
      */
     public int getCell(int row, int column) {
-    	return board[row][column].getValue(); 
+    	int value = cells[row * 9 + column] & VALUE_MASK;
+    	if (value == 0) {
+    		throw new IllegalStateException("Cell is empty.");
+    	}
+    	return value; 
     }
     
     /**
@@ -50,26 +54,11 @@ public abstract class AbstractBoard implements Board, Serializable {
 	    	return false;
 	    }
 	    
-    	int i = 0;
-	    int j = 0;
-	    while (i <= MAX_ROW) {
-	        while (j <= MAX_COLUMN) {
-			    if(board[i][j].isEmpty() && 
-			    !((AbstractBoard)toCompare).cellIsEmpty(i,j)){
-				    return false;
-				} else if(!board[i][j].isEmpty() && 
-				((AbstractBoard)toCompare).cellIsEmpty(i,j)){
-			        return false;
-				} else if(board[i][j].getValue() != 
-				((AbstractBoard)toCompare).getCell(i, j)) {
-			        return false;
-				}
-				
-			    j++;
-			}
-	        
-			j = 0;
-			i++;
+	    byte[] other = ((AbstractBoard)toCompare).cells;
+	    for (int index = 0; index < BoardGeometry.CELLS; index++) {
+	    	if ((cells[index] & VALUE_MASK) != (other[index] & VALUE_MASK)) {
+	    		return false;
+	    	}
 	    }
 	    
 	    //if gotten to here, all cells are the same
@@ -85,9 +74,19 @@ public abstract class AbstractBoard implements Board, Serializable {
 	 * @pre row >= MIN_ROW && row <= MAX_ROW.
 	 * @pre column >= MIN_COLUMN && column <= MAX_COLUMN.
 	 * @pre value >= MIN_VALUE && value <= MAX_VALUE.
+	 * @throws IllegalStateException if the cell is not changeable.
 	 */
     protected void setCell(int row, int column, int value) {
-    	board[row][column].setValue(value);
+    	int index = row * 9 + column;
+    	int cell = cells[index];
+    	if ((cell & FIXED) != 0) {
+    		throw new IllegalStateException("Cell is not changeable.");
+    	}
+    	if ((cell & VALUE_MASK) != 0) {
+    		unplace(index, cell & VALUE_MASK);
+    	}
+    	cells[index] = (byte) value;
+    	place(index, value);
     }
       
     /**
@@ -97,7 +96,7 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @return true if the cell is empty, false otherwise.
      */
     protected boolean cellIsEmpty(int row, int column) {
-    	return board[row][column].isEmpty();
+    	return (cells[row * 9 + column] & VALUE_MASK) == 0;
     }
     
     /**
@@ -107,9 +106,18 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @pre isChangeable(row,column) == true.
 	 * @pre row >= MIN_ROW && row <= MAX_ROW.
 	 * @pre column >= MIN_COLUMN && column <= MAX_COLUMN.
+	 * @throws IllegalStateException if the cell is not changeable.
      */
     protected void removeValue(int row, int column) {
-    	board[row][column].setEmpty();
+    	int index = row * 9 + column;
+    	int cell = cells[index];
+    	if ((cell & FIXED) != 0) {
+    		throw new IllegalStateException("Cell is not changeable.");
+    	}
+    	if ((cell & VALUE_MASK) != 0) {
+    		unplace(index, cell & VALUE_MASK);
+    		cells[index] = 0;
+    	}
     }
     
     
@@ -122,24 +130,12 @@ public abstract class AbstractBoard implements Board, Serializable {
      * false otherwise.
      */
     protected boolean isSubset(AbstractBoard toCompare) {
-	    int i = 0;
-	    int j = 0;
-	    
-	    while (i <= MAX_ROW) {
-		    while (j <= MAX_COLUMN) {
-			    if(board[i][j].isEmpty()){
-			        //do nothing
-			    } else if(toCompare.cellIsEmpty(i,j)){
-				    return false;
-			    } else if(board[i][j].getValue() != toCompare.getCell(i, j)){
-			    	return false;
-		    	}
-			
-			    j++;
-		    }
-		    j = 0;
-		    i++;
-	    }
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		int value = cells[index] & VALUE_MASK;
+    		if (value != 0 && value != (toCompare.cells[index] & VALUE_MASK)) {
+    			return false;
+    		}
+    	}
         //if gotten to here, all cells are the same
         return true;
     }
@@ -150,7 +146,8 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @param column the column of the cell to make changeable.
      */
     protected void setChangeable(int row, int column) {
-    	board[row][column].setChangeable(true);
+    	cells[row * 9 + column] &= ~FIXED;
+    	packedRows[row] &= ~(1L << BoardSnapshot.FIXED_SHIFT + column);
     }
     
     /**
@@ -159,7 +156,8 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @param column the column of the cell to make unchangeable.
      */
     protected void setUnchangeable(int row, int column) {
-    	board[row][column].setChangeable(false);
+    	cells[row * 9 + column] |= FIXED;
+    	packedRows[row] |= 1L << BoardSnapshot.FIXED_SHIFT + column;
     }
     
     /**
@@ -171,39 +169,31 @@ public abstract class AbstractBoard implements Board, Serializable {
      * false otherwise.
      */
     protected boolean isChangeable(int row, int column) {
-    	return board[row][column].isChangeable();
+    	return (cells[row * 9 + column] & FIXED) == 0;
     }
     
     /**
      * A method to check the row of a board for the existence of a value input
      * @param input the number that is checked
      * @param row the row that the number is checked against.
-     * @return true if the row contains the value of input else false
+     * @param column the cell within the row that is ignored by the check.
+     * @return false if another cell of the row contains the value of input else true
      */
     protected boolean checkRow(int input, int row, int column) {
-    	for (int i = MIN_COLUMN; i < MAX_COLUMN; i++) {
-    		if (!board[row][i].isEmpty() && board[row][i].getValue() == input
-    			&& column != i) {
-    			return false;
-    		}
-    	}
-    	return true;
+    	return (rowMask[row] & BoardGeometry.bitOf(input)) == 0
+    		|| onlyOccupant(row, input, row, column);
     }
     
     /**
      * A method to check the column of a board for the existence of a value input
      * @param input the number that is checked in the column
+     * @param row the cell within the column that is ignored by the check.
      * @param column the column that is checked in the board
-     * @return true if the column contains the value input else false
+     * @return false if another cell of the column contains the value input else true
      */
     protected boolean checkColumn(int input, int row, int column) {
-    	for (int i = MIN_ROW; i < MAX_ROW; i++) {
-    		if (!board[i][column].isEmpty() && board[i][column].getValue() == input
-    			&& i != row) {
-    			return false;
-    		}
-    	}
-    	return true;
+    	return (columnMask[column] & BoardGeometry.bitOf(input)) == 0
+    		|| onlyOccupant(9 + column, input, row, column);
     }
     
     /**
@@ -211,27 +201,171 @@ public abstract class AbstractBoard implements Board, Serializable {
      * @param input the number that is checked in the box
      * @param row the row used to identify the box
      * @param column the column used to identify the box
-     * @return true if the box contains the value input else false
+     * @return false if another cell of the box contains the value input else true
      */
     protected boolean checkBox(int input, int row, int column) {
-    	int i = MIN_ROW + row - row % 3;
-    	int j = MIN_COLUMN + column - column % 3;
-    			
-    	while(i < (row + 3 - row % 3)) {
-    		while(j < (column + 3 - column % 3)) {
-    			if (!board[i][j].isEmpty() && board[i][j].getValue() == input &&
-    			i != row && j != column) {
-    				return false;
+    	int box = BoardGeometry.boxOf(row, column);
+    	return (boxMask[box] & BoardGeometry.bitOf(input)) == 0
+    		|| onlyOccupant(18 + box, input, row, column);
+    }
+    
+    /**
+     * Returns true if every cell of the board holds a value.
+     * @return true if no cell is empty, false otherwise.
+     */
+    public boolean isComplete() {
+    	return filledCells == BoardGeometry.CELLS;
+    }
+    
+    /**
+     * Returns true if some value is repeated within a row, column or box.
+     * @return true if the board holds at least one clash, false otherwise.
+     */
+    public boolean hasConflicts() {
+    	return conflicts > 0;
+    }
+    
+    /**
+     * Returns 64 bits of the 81-bit mask of cells whose value is repeated in one of
+     * their units. The mask is kept up to date as values are placed and removed.
+     * @param word 0 for cells 0 - 63, 1 for cells 64 - 80.
+     * @return the word of the mask, bit (index % 64) set for every conflicting cell.
+     */
+    protected long conflictMask(int word) {
+    	return conflictMask[word];
+    }
+    
+    /**
+     * Returns true if the value of the cell at row/column is repeated in its row,
+     * column or box.
+     * @param row the row of the cell.
+     * @param column the column of the cell.
+     * @return true if the cell clashes with another cell.
+     */
+    protected boolean isConflicting(int row, int column) {
+    	return conflictUnits[row * 9 + column] != 0;
+    }
+    
+    /**
+     * Returns true if the board is a valid solution, i.e. it is complete
+     * and no row, column or box repeats a value.
+     * @return true if the board is complete and has no conflicts.
+     */
+    public boolean isSolved() {
+    	return filledCells == BoardGeometry.CELLS && conflicts == 0;
+    }
+    
+    /**
+     * Returns the number of cells holding a value.
+     * @return the number of filled cells.
+     */
+    protected int filledCount() {
+    	return filledCells;
+    }
+    
+    /**
+     * Returns the Zobrist hash of the cell values, kept up to date as values are set
+     * and removed. Boards holding the same values have the same hash whatever order
+     * the values were placed in; changeability does not take part.
+     * @return the xor of the Zobrist keys of every filled cell.
+     */
+    protected long zobristHash() {
+    	return zobrist;
+    }
+    
+    /**
+     * Returns the Zobrist key of a value in a cell, so the hash of a board after some
+     * change can be found without making it: xor in the key of every value added or
+     * removed.
+     * @param index the cell index (row * 9 + column).
+     * @param value the value, 1 - 9.
+     * @return the key of value at index.
+     */
+    protected static long zobristKey(int index, int value) {
+    	return ZOBRIST_KEYS[index * 9 + value - 1];
+    }
+    
+    /**
+     * Returns true if value can be placed in the empty cell at row/column without
+     * repeating a value in its row, column or box.
+     * @param row the row of the cell.
+     * @param column the column of the cell.
+     * @param value the value to test.
+     * @return true if none of the cell's units already hold value.
+     */
+    protected boolean canPlace(int row, int column, int value) {
+    	return (usedMask(row, column) & BoardGeometry.bitOf(value)) == 0;
+    }
+    
+    /**
+     * Returns the 9-bit mask of values still available to the cell at row/column,
+     * i.e. the values held by none of its row, column or box.
+     * @param row the row of the cell.
+     * @param column the column of the cell.
+     * @return a mask with bit (value - 1) set for every available value.
+     */
+    protected int candidates(int row, int column) {
+    	return ~usedMask(row, column) & BoardGeometry.ALL_VALUES;
+    }
+    
+    /**
+     * Returns the value at the given cell index, or 0 if the cell is empty.
+     * @param index the cell index (row * 9 + column).
+     * @return the value of the cell, or 0 if empty.
+     */
+    protected int valueAt(int index) {
+    	return cells[index] & VALUE_MASK;
+    }
+    
+    /**
+     * Returns a copy of the cell values in row-major order, 0 for an empty cell.
+     * @return a new array of 81 values.
+     */
+    protected byte[] copyValues() {
+    	byte[] values = new byte[BoardGeometry.CELLS];
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		values[index] = (byte) (cells[index] & VALUE_MASK);
+    	}
+    	return values;
+    }
+    
+    /**
+     * Takes an immutable snapshot of the cells of this board.
+     * @return the values and changeability of every cell.
+     */
+    protected BoardSnapshot snapshot() {
+    	return new BoardSnapshot(packedRows);
+    }
+    
+    /**
+     * Puts back the cells of a snapshot, values and changeability alike. Rows equal to
+     * those of the snapshot are skipped and only the cells that differ are updated, so
+     * restoring a recent snapshot touches few cells.
+     * @param snapshot a snapshot taken from a board of the same puzzle or any other.
+     */
+    protected void restore(BoardSnapshot snapshot) {
+    	for (int row = 0; row < 9; row++) {
+    		long word = snapshot.getWord(row);
+    		if (packedRows[row] == word) {
+    			continue;
+    		}
+    		for (int column = 0; column < 9; column++) {
+    			int index = row * 9 + column;
+    			int value = (int) (word >>> 4 * column) & VALUE_MASK;
+    			int cell = value | (int) (word >>> BoardSnapshot.FIXED_SHIFT + column & 1) * FIXED;
+    			int old = cells[index] & VALUE_MASK;
+    			if (old != value) {
+    				if (old != 0) {
+    					unplace(index, old);
+    				}
+    				if (value != 0) {
+    					place(index, value);
+    				}
     			}
-    			
-    			j++;
+    			cells[index] = (byte) cell;
     		}
-    		
-    		j = MIN_COLUMN + column - column % 3;
-    		i++;
+    		packedRows[row] = word;
     	}
-    	
-    	return true;
     }
     
     /**
@@ -256,6 +390,197 @@ public abstract class AbstractBoard implements Board, Serializable {
     	}
     }
 
-    private Cell[][] board;
+    /**
+     * Returns the union of the row, column and box masks of a cell.
+     */
+    private int usedMask(int row, int column) {
+    	return rowMask[row] | columnMask[column] | boxMask[BoardGeometry.boxOf(row, column)];
+    }
+    
+    /**
+     * Returns true if the only cell of unit holding value is row/column itself.
+     */
+    private boolean onlyOccupant(int unit, int value, int row, int column) {
+    	return (cells[row * 9 + column] & VALUE_MASK) == value && unitCounts[unit * 9 + value - 1] == 1;
+    }
+    
+    /**
+     * Records value as present in every unit of the cell at index.
+     */
+    private void place(int index, int value) {
+    	int bit = BoardGeometry.bitOf(value);
+    	int[] units = BoardGeometry.UNITS_OF[index];
+    	filledCells++;
+    	zobrist ^= ZOBRIST_KEYS[index * 9 + value - 1];
+    	packedRows[BoardGeometry.ROW[index]] |= (long) value << 4 * BoardGeometry.COLUMN[index];
+    	if (enter(units[0] * 9 + value - 1, index)) {
+    		rowMask[units[0]] |= bit;
+    	}
+    	if (enter(units[1] * 9 + value - 1, index)) {
+    		columnMask[units[1] - 9] |= bit;
+    	}
+    	if (enter(units[2] * 9 + value - 1, index)) {
+    		boxMask[units[2] - 18] |= bit;
+    	}
+    }
+    
+    /**
+     * Records value as removed from every unit of the cell at index. A unit's mask bit
+     * is only cleared once no other cell of the unit holds the value.
+     */
+    private void unplace(int index, int value) {
+    	int bit = BoardGeometry.bitOf(value);
+    	int[] units = BoardGeometry.UNITS_OF[index];
+    	filledCells--;
+    	zobrist ^= ZOBRIST_KEYS[index * 9 + value - 1];
+    	packedRows[BoardGeometry.ROW[index]] &= ~(0xFL << 4 * BoardGeometry.COLUMN[index]);
+    	if (leave(units[0] * 9 + value - 1, index)) {
+    		rowMask[units[0]] &= ~bit;
+    	}
+    	if (leave(units[1] * 9 + value - 1, index)) {
+    		columnMask[units[1] - 9] &= ~bit;
+    	}
+    	if (leave(units[2] * 9 + value - 1, index)) {
+    		boxMask[units[2] - 18] &= ~bit;
+    	}
+    }
+    
+    /**
+     * Counts the cell at index into a unit/value slot. A second occupant puts both
+     * cells in conflict, and any further one just itself.
+     * @return true if the cell is the first occupant of the slot.
+     */
+    private boolean enter(int slot, int index) {
+    	int occupants = unitCounts[slot]++;
+    	if (occupants == 1) {
+    		addConflict(unitOccupants[slot]);
+    	}
+    	unitOccupants[slot] += index;
+    	if (occupants == 0) {
+    		return true;
+    	}
+    	conflicts++;
+    	addConflict(index);
+    	return false;
+    }
+    
+    /**
+     * Counts the cell at index out of a unit/value slot. The cell left alone in the
+     * slot, found from the sum of occupant indices, is no longer in conflict there.
+     * @return true if the slot is now empty.
+     */
+    private boolean leave(int slot, int index) {
+    	unitOccupants[slot] -= index;
+    	int occupants = --unitCounts[slot];
+    	if (occupants == 0) {
+    		return true;
+    	}
+    	conflicts--;
+    	removeConflict(index);
+    	if (occupants == 1) {
+    		removeConflict(unitOccupants[slot]);
+    	}
+    	return false;
+    }
+    
+    /**
+     * Records one more unit in which the cell at index clashes.
+     */
+    private void addConflict(int index) {
+    	if (conflictUnits[index]++ == 0) {
+    		conflictMask[index >>> 6] |= 1L << index;
+    	}
+    }
+    
+    /**
+     * Records one unit fewer in which the cell at index clashes.
+     */
+    private void removeConflict(int index) {
+    	if (--conflictUnits[index] == 0) {
+    		conflictMask[index >>> 6] &= ~(1L << index);
+    	}
+    }
+    
+    /**
+     * Recomputes the unit masks, the packed rows, the cell and conflict counts and the
+     * conflict mask from the packed cells.
+     */
+    private void rebuildMasks() {
+    	rowMask = new short[9];
+    	columnMask = new short[9];
+    	boxMask = new short[9];
+    	unitCounts = new byte[BoardGeometry.UNITS * 9];
+    	unitOccupants = new short[BoardGeometry.UNITS * 9];
+    	conflictUnits = new byte[BoardGeometry.CELLS];
+    	conflictMask = new long[2];
+    	filledCells = 0;
+    	conflicts = 0;
+    	zobrist = 0;
+    	packedRows = new long[9];
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		if ((cells[index] & VALUE_MASK) != 0) {
+    			place(index, cells[index] & VALUE_MASK);
+    		}
+    		if ((cells[index] & FIXED) != 0) {
+    			packedRows[BoardGeometry.ROW[index]] |= 1L << BoardSnapshot.FIXED_SHIFT + BoardGeometry.COLUMN[index];
+    		}
+    	}
+    }
+    
+    /**
+     * Reads a board, accepting both the packed format and boards saved when cells
+     * were stored as a Cell[][].
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    	ObjectInputStream.GetField fields = in.readFields();
+    	cells = (byte[]) fields.get("cells", null);
+    	if (cells == null) {
+    		Cell[][] legacyBoard = (Cell[][]) fields.get("board", null);
+    		if (legacyBoard == null) {
+    			throw new IOException("Board contains no cells.");
+    		}
+    		cells = new byte[BoardGeometry.CELLS];
+    		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    			Cell cell = legacyBoard[index / 9][index % 9];
+    			if (!cell.isEmpty()) {
+    				cells[index] = (byte) cell.getValue();
+    			}
+    			if (!cell.isChangeable()) {
+    				cells[index] |= FIXED;
+    			}
+    		}
+    	}
+    	rebuildMasks();
+    }
+
+    static final int VALUE_MASK = 0x0F;
+    static final int FIXED = 0x10;
+    // one random key per cell and value, fixed so hashes agree between runs
+    private static final long[] ZOBRIST_KEYS = new long[BoardGeometry.CELLS * 9];
+    
+    static {
+    	SplittableRandom keys = new SplittableRandom(0x5EED5D0C0L);
+    	for (int i = 0; i < ZOBRIST_KEYS.length; i++) {
+    		ZOBRIST_KEYS[i] = keys.nextLong();
+    	}
+    }
+    
+    private byte[] cells;
+    private transient short[] rowMask;
+    private transient short[] columnMask;
+    private transient short[] boxMask;
+    private transient byte[] unitCounts;
+    // the sum of the indices of the cells holding each value of each unit
+    private transient short[] unitOccupants;
+    private transient int filledCells;
+    // the number of values that repeat one already present in the same unit
+    private transient int conflicts;
+    // the number of units in which the value of each cell is repeated
+    private transient byte[] conflictUnits;
+    // bit (index % 64) of word (index / 64) set for every cell with a repeated value
+    private transient long[] conflictMask;
+    private transient long zobrist;
+    // the cells one row to a word, as in BoardSnapshot
+    private transient long[] packedRows;
 	private static final long serialVersionUID = -4022342899785321245L;
 }
@@ -17,6 +17,24 @@ public interface Board {
      */
     public boolean isEqual(Object toCompare);
     
+    /**
+     * Returns whether every cell of the board holds a value.
+     * @return true if no cell is empty.
+     */
+    public boolean isComplete();
+    
+    /**
+     * Returns whether a value is repeated within some row, column or box.
+     * @return true if the board holds at least one clash.
+     */
+    public boolean hasConflicts();
+    
+    /**
+     * Returns whether the board is complete and free of conflicts.
+     * @return true if the board is a valid solution.
+     */
+    public boolean isSolved();
+    
     public static final int MIN_ROW = 0;
     public static final int MAX_ROW = 8;
     public static final int MIN_COLUMN = 0;
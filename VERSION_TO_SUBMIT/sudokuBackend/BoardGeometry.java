@@ -0,0 +1,87 @@
+package sudokuBackend;
+
+/**
+ * Static lookup tables describing the geometry of a 9x9 board.
+ * Cells are addressed by a single index (row * 9 + column) and units are numbered
+ * 0 - 8 for rows, 9 - 17 for columns and 18 - 26 for boxes.
+ */
+public final class BoardGeometry {
+
+    private BoardGeometry() {
+    }
+
+    /**
+     * Returns the cell index of the given row/column.
+     * @param row the row of the cell.
+     * @param column the column of the cell.
+     * @return row * 9 + column.
+     */
+    public static int indexOf(int row, int column) {
+    	return row * 9 + column;
+    }
+
+    /**
+     * Returns the box (0 - 8, numbered left to right, top to bottom) containing the
+     * given row/column.
+     * @param row the row of the cell.
+     * @param column the column of the cell.
+     * @return the box containing the cell.
+     */
+    public static int boxOf(int row, int column) {
+    	return (row / 3) * 3 + column / 3;
+    }
+
+    /**
+     * Returns the bit used to represent value in a 9-bit candidate mask.
+     * @param value a value between 1 and 9 inclusive.
+     * @return 1 << (value - 1).
+     */
+    public static int bitOf(int value) {
+    	return 1 << (value - 1);
+    }
+
+    public static final int CELLS = 81;
+    public static final int UNITS = 27;
+    public static final int NUM_PEERS = 20;
+    public static final int ALL_VALUES = 0x1FF;
+
+    /** The row of every cell index. */
+    public static final int[] ROW = new int[CELLS];
+    /** The column of every cell index. */
+    public static final int[] COLUMN = new int[CELLS];
+    /** The box of every cell index. */
+    public static final int[] BOX = new int[CELLS];
+    /** The row, column and box unit numbers of every cell index. */
+    public static final int[][] UNITS_OF = new int[CELLS][3];
+    /** The nine cell indices of every unit. */
+    public static final int[][] UNIT_CELLS = new int[UNITS][9];
+    /** The 20 cells sharing a row, column or box with every cell index. */
+    public static final int[][] PEERS = new int[CELLS][NUM_PEERS];
+
+    static {
+    	int[] unitFill = new int[UNITS];
+    	for (int index = 0; index < CELLS; index++) {
+    		int row = index / 9;
+    		int column = index % 9;
+    		ROW[index] = row;
+    		COLUMN[index] = column;
+    		BOX[index] = boxOf(row, column);
+    		UNITS_OF[index][0] = row;
+    		UNITS_OF[index][1] = 9 + column;
+    		UNITS_OF[index][2] = 18 + BOX[index];
+    		for (int u : UNITS_OF[index]) {
+    			UNIT_CELLS[u][unitFill[u]++] = index;
+    		}
+    	}
+
+    	for (int index = 0; index < CELLS; index++) {
+    		int peerCount = 0;
+    		for (int other = 0; other < CELLS; other++) {
+    			if (other != index && (ROW[other] == ROW[index] || COLUMN[other] == COLUMN[index]
+    					|| BOX[other] == BOX[index])) {
+    				PEERS[index][peerCount++] = other;
+    			}
+    		}
+    	}
+    }
+}
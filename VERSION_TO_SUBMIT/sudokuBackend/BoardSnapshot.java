@@ -0,0 +1,95 @@
+package sudokuBackend;
+
+/**
+ * An immutable copy of the cells of a board, taken by AbstractBoard.snapshot and put
+ * back with restore. Each row is packed into one 64-bit word: the value of column c,
+ * 0 when empty, in the nibble at bit 4c, and whether the cell is unchangeable in bit
+ * 36 + c. Boards keep their cells packed this way as they change, so taking, comparing
+ * and hashing a snapshot costs nine words rather than 81 cells, and a snapshot may be
+ * shared freely between threads.
+ */
+public final class BoardSnapshot {
+
+	/**
+	 * Copies the packed rows kept by a board.
+	 */
+	BoardSnapshot(long[] rows) {
+		words = rows.clone();
+		long hash = 0;
+		for (long word : words) {
+			hash = hash * 0x9E3779B97F4A7C15L + word;
+		}
+		this.hash = (int) (hash ^ hash >>> 32);
+	}
+
+	/**
+	 * Returns the value of a cell.
+	 * @param row the row of the cell.
+	 * @param column the column of the cell.
+	 * @return the value of the cell, or 0 if it is empty.
+	 */
+	public int getValue(int row, int column) {
+		return (int) (words[row] >>> 4 * column) & AbstractBoard.VALUE_MASK;
+	}
+
+	/**
+	 * Returns true if a cell is one of the givens.
+	 * @param row the row of the cell.
+	 * @param column the column of the cell.
+	 * @return true if the cell is unchangeable.
+	 */
+	public boolean isFixed(int row, int column) {
+		return (words[row] >>> FIXED_SHIFT + column & 1) != 0;
+	}
+
+	/**
+	 * Returns the values of the cells in row-major order, 0 for an empty cell.
+	 * @return a new array of 81 values.
+	 */
+	public byte[] copyValues() {
+		byte[] values = new byte[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			values[index] = (byte) getValue(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index]);
+		}
+		return values;
+	}
+
+	/**
+	 * Two snapshots are equal when every cell holds the same value and has the same
+	 * changeability.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof BoardSnapshot) || ((BoardSnapshot) other).hash != hash) {
+			return false;
+		}
+		long[] otherWords = ((BoardSnapshot) other).words;
+		for (int row = 0; row < 9; row++) {
+			if (words[row] != otherWords[row]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Returns the packed word of a row.
+	 */
+	long getWord(int row) {
+		return words[row];
+	}
+
+	// the bit of the first column's changeability in a row word
+	static final int FIXED_SHIFT = 36;
+
+	private final long[] words;
+	private final int hash;
+}
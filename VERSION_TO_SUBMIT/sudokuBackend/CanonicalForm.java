@@ -0,0 +1,265 @@
+package sudokuBackend;
+
+/**
+ * Maps a board to its minlex form: the lexicographically smallest row-major string of
+ * values, empty cells as 0, among all boards equivalent under the sudoku symmetry
+ * group (see SymmetryTransform). Two boards are the same puzzle up to symmetry exactly
+ * when their minlex forms are equal.
+ * For both orientations and every choice of first row, the column orders that make the
+ * first row smallest are found by building the order one column at a time, stack by
+ * stack. The remaining rows are then chosen one at a time, band by band, while the
+ * column orders tied so far are carried along as a set and narrowed to those making
+ * each new row smallest, so column orders that only differ later are never searched
+ * separately. Digits are relabeled in the order they first appear. Every cell is
+ * compared with the best string found as soon as it is known, and a branch is only
+ * followed while the string built so far equals the best prefix.
+ */
+public class CanonicalForm {
+
+	private CanonicalForm() {
+	}
+
+	/**
+	 * Returns the minlex form of a board.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 * @return a new array holding the minlex form.
+	 */
+	public static byte[] minlex(byte[] values) {
+		Search search = SCRATCH.get();
+		search.reset();
+		for (int transpose = 0; transpose < 2; transpose++) {
+			for (int index = 0; index < BoardGeometry.CELLS; index++) {
+				int row = BoardGeometry.ROW[index];
+				int column = BoardGeometry.COLUMN[index];
+				search.grid[index] = transpose == 0 ? values[index]
+						: values[BoardGeometry.indexOf(column, row)];
+			}
+			for (int row = 0; row < 9; row++) {
+				search.orders[1] = 0;
+				search.rows[0] = row;
+				search.chooseColumn(0, row, 0, 1);
+				if (search.orders[1] > 0) {
+					search.chooseRow(1, 1 << row);
+				}
+			}
+		}
+		return search.best.clone();
+	}
+
+	/**
+	 * Returns the minlex form of a board as a string of 81 digits, '0' for an empty cell,
+	 * suitable as a key for hash-based deduplication.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 * @return the minlex form as a string.
+	 */
+	public static String key(byte[] values) {
+		byte[] form = minlex(values);
+		char[] digits = new char[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			digits[index] = (char) ('0' + form[index]);
+		}
+		return new String(digits);
+	}
+
+	/**
+	 * The state of one canonicalization: the oriented grid, the tied column orders with
+	 * their digit labels after each row, and the best string found. Reused by later
+	 * canonicalizations on the same thread.
+	 */
+	private static final class Search {
+
+		Search() {
+			grid = new byte[BoardGeometry.CELLS];
+			best = new byte[BoardGeometry.CELLS];
+			columns = new int[9];
+			rowLabels = new byte[10];
+			leafColumns = new byte[MAX_ORDERS * 9];
+			leaf = new int[10][MAX_ORDERS];
+			labels = new byte[10][MAX_ORDERS * 10];
+			nextLabel = new byte[10][MAX_ORDERS];
+			orders = new int[10];
+			rows = new int[9];
+			candidate = new byte[9];
+			smallest = new byte[9];
+			map = new byte[10];
+		}
+
+		void reset() {
+			bestLength = 0;
+		}
+
+		/**
+		 * Chooses the column placed at position of the first row: any column of an
+		 * unused stack at the start of a stack, an unused column of the current stack
+		 * otherwise. Every complete order whose first row ties the best is kept.
+		 * @param position the position in the first row being filled.
+		 * @param row the row of the grid that becomes the first row.
+		 * @param usedColumns a mask of the columns placed so far.
+		 * @param label the next digit label to hand out.
+		 */
+		void chooseColumn(int position, int row, int usedColumns, int label) {
+			if (position == 9) {
+				int order = orders[1]++;
+				for (int k = 0; k < 9; k++) {
+					leafColumns[order * 9 + k] = (byte) columns[k];
+				}
+				leaf[1][order] = order;
+				System.arraycopy(rowLabels, 0, labels[1], order * 10, 10);
+				nextLabel[1][order] = (byte) label;
+				return;
+			}
+			int first = position % 3 == 0 ? 0 : columns[position - 1] / 3 * 3;
+			int last = position % 3 == 0 ? 9 : first + 3;
+			for (int column = first; column < last; column++) {
+				if ((usedColumns & 1 << column) != 0
+						|| (position % 3 == 0 && (usedColumns & 7 << (column / 3 * 3)) != 0)) {
+					continue;
+				}
+				int value = grid[row * 9 + column];
+				boolean labelled = value != 0 && rowLabels[value] == 0;
+				if (labelled) {
+					rowLabels[value] = (byte) label;
+				}
+				boolean smaller = position >= bestLength || rowLabels[value] < best[position];
+				if (write(position, rowLabels[value])) {
+					if (smaller) {
+						// a smaller first row: the orders kept so far are beaten
+						orders[1] = 0;
+					}
+					columns[position] = column;
+					chooseColumn(position + 1, row, usedColumns | 1 << column,
+							labelled ? label + 1 : label);
+				}
+				if (labelled) {
+					rowLabels[value] = 0;
+				}
+			}
+		}
+
+		/**
+		 * Tries every row allowed at depth: the rows of unused bands at the start of a
+		 * band, and the unused rows of the current band otherwise. For each, the tied
+		 * column orders are narrowed to those giving the smallest row.
+		 */
+		void chooseRow(int depth, int usedRows) {
+			if (depth == 9) {
+				return;
+			}
+			int first = depth % 3 == 0 ? 0 : rows[depth - 1] / 3 * 3;
+			int last = depth % 3 == 0 ? 9 : first + 3;
+			for (int row = first; row < last; row++) {
+				if ((usedRows & 1 << row) != 0
+						|| (depth % 3 == 0 && (usedRows & 7 << (row / 3 * 3)) != 0)) {
+					continue;
+				}
+				if (narrow(depth, row) && writeRow(depth)) {
+					rows[depth] = row;
+					chooseRow(depth + 1, usedRows | 1 << row);
+				}
+			}
+		}
+
+		/**
+		 * Writes row of the grid as row depth of the result under every tied column order,
+		 * keeping the orders that give the smallest string in smallest.
+		 * @return false if no order gives a row that can still match the best.
+		 */
+		private boolean narrow(int depth, int row) {
+			int kept = 0;
+			for (int k = 0; k < orders[depth]; k++) {
+				int order = leaf[depth][k];
+				System.arraycopy(labels[depth], k * 10, map, 0, 10);
+				int label = nextLabel[depth][k];
+				int compare = kept == 0 ? -1 : 0;
+				for (int position = 0; position < 9; position++) {
+					int value = grid[row * 9 + leafColumns[order * 9 + position]];
+					if (value != 0 && map[value] == 0) {
+						map[value] = (byte) label++;
+					}
+					candidate[position] = map[value];
+					if (compare == 0) {
+						compare = candidate[position] - smallest[position];
+						if (compare > 0) {
+							break;
+						}
+					}
+				}
+				if (compare > 0) {
+					continue;
+				}
+				if (compare < 0) {
+					kept = 0;
+					System.arraycopy(candidate, 0, smallest, 0, 9);
+				}
+				leaf[depth + 1][kept] = order;
+				System.arraycopy(map, 0, labels[depth + 1], kept * 10, 10);
+				nextLabel[depth + 1][kept] = (byte) label;
+				kept++;
+			}
+			orders[depth + 1] = kept;
+			return kept > 0;
+		}
+
+		/**
+		 * Compares the smallest row found by narrow with the best string.
+		 * @return false if the row is larger than the best row at depth.
+		 */
+		private boolean writeRow(int depth) {
+			for (int position = 0; position < 9; position++) {
+				if (!write(depth * 9 + position, smallest[position])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Compares the cell at index of the string being built with the best string,
+		 * which the current branch matches up to index. A smaller value, or a cell past
+		 * the end of the best string reached so far, starts a new best string.
+		 * @return false if the value is larger, so the branch can be dropped.
+		 */
+		private boolean write(int index, int value) {
+			if (index < bestLength) {
+				if (value > best[index]) {
+					return false;
+				}
+				if (value == best[index]) {
+					return true;
+				}
+			}
+			best[index] = (byte) value;
+			bestLength = index + 1;
+			return true;
+		}
+
+		final byte[] grid;
+		final byte[] best;
+		// the number of tied column orders after each row of the result
+		final int[] orders;
+		// the row of the grid placed at each row of the result
+		final int[] rows;
+		private final int[] columns;
+		private final byte[] rowLabels;
+		private final byte[] leafColumns;
+		// for each row of the result, the tied orders as indices into leafColumns, with
+		// their digit labels and next free label
+		private final int[][] leaf;
+		private final byte[][] labels;
+		private final byte[][] nextLabel;
+		private final byte[] candidate;
+		private final byte[] smallest;
+		private final byte[] map;
+		// the number of cells of best that hold a string actually reached
+		private int bestLength;
+	}
+
+	// the number of column orders that keep stacks together
+	private static final int MAX_ORDERS = 1296;
+
+	private static final ThreadLocal<Search> SCRATCH = new ThreadLocal<Search>() {
+		protected Search initialValue() {
+			return new Search();
+		}
+	};
+}
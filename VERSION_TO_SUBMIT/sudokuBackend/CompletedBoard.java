@@ -1,6 +1,6 @@
 package sudokuBackend;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 
 /**
@@ -15,68 +15,68 @@ public class CompletedBoard extends AbstractBoard implements Serializable {
 	 * cells with random values using a backtracking algorithm
 	 */
 	public CompletedBoard() {
-    	super();
-    	Random numGenerator = new Random();	
-    	int currValue = 0;
-    	int j = 0;
-    	int i = 0;
-    	int [][] numIncrements = new int[9][9];
-    	
-    	while (i <= Board.MAX_ROW) {
-    		while (j <= Board.MAX_COLUMN) {
-    			if (numIncrements[i][j] == 0) {
-    			    currValue = numGenerator.nextInt(9) + 1;
-    		    } else {
-    		    	currValue = incValue(currValue);
-    		    }
-    	        if (super.checkRow(currValue, i, j) && super.checkColumn(currValue, i, j)
-    	        && super.checkBox(currValue, i, j)) {
-    		        super.setCell(i, j, currValue);
-    		        j++;
-    		        if (j == 9) {
-    		            break;
-    		        }
-    		        numIncrements[i][j] = 0;
-    		    } else {
-    		    	numIncrements[i][j]++;
-    		    }
-	        	
-    	        if (numIncrements[i][j] > 8) {
-    	        	super.removeValue(i,j);
-    	        	if (j == 0) {
-    	        		i--;
-    	        		j = 8;
-    	        	} else {
-    	        		j--;
-    	        	}
-    	        	
-    		        numIncrements[i][j]++;
-    	        	currValue = super.getCell(i, j);
-    	        }
-    	    }
-    		j = 0;
-    		i++;
-    	}
-    }
-
+		this(new SplittableRandom());
+	}
+	
 	/**
-	 * A private method that is used to increment values while keeping them within the bounds of
-	 * 1 - 9
-	 * @param value an integer that needs to be incremented
-	 * @return (value mod 9) + 1
+	 * A constructor for completed boards that draws every random choice from the given
+	 * generator, so the same generator state always produces the same board. Every cell gets
+	 * its own shuffled order of the values 1 - 9 up front; a depth first search then fills the
+	 * cells in row-major order, taking the next value in the cell's order that its row, column
+	 * and box masks allow and stepping back a cell when none is left. The search only moves 
+	 * through two small arrays, so backtracking allocates nothing
+	 * @param numGenerator the source of randomness for the fill
 	 */
-    private int incValue (int value) {
-    	int newValue;
-    	
-    	if (value == 9) {
-    		newValue = 1;
-    	} else {
-    		newValue = value + 1;
+	public CompletedBoard(SplittableRandom numGenerator) {
+    	super();
+    	byte[] order = new byte[BoardGeometry.CELLS * 9];
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		int base = index * 9;
+    		for (int k = 0; k < 9; k++) {
+    			int pick = numGenerator.nextInt(k + 1);
+    			order[base + k] = order[base + pick];
+    			order[base + pick] = (byte) (k + 1);
+    		}
     	}
     	
-    	return newValue;
+    	// the position in its order of the next value each cell tries
+    	byte[] next = new byte[BoardGeometry.CELLS];
+    	int index = 0;
+    	while (index < BoardGeometry.CELLS) {
+    		int row = BoardGeometry.ROW[index];
+    		int column = BoardGeometry.COLUMN[index];
+    		int available = candidates(row, column);
+    		int value = 0;
+    		while (next[index] < 9 && value == 0) {
+    			int tried = order[index * 9 + next[index]++];
+    			if ((available & BoardGeometry.bitOf(tried)) != 0) {
+    				value = tried;
+    			}
+    		}
+    		
+    		if (value != 0) {
+    			super.setCell(row, column, value);
+    			index++;
+    		} else {
+    			next[index] = 0;
+    			index--;
+    			super.removeValue(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index]);
+    		}
+    	}
     }
     
+	/**
+	 * A constructor for a completed board holding known values, such as a transformed copy 
+	 * of another completed board
+	 * @param values the 81 cell values in row-major order, all filled
+	 */
+	CompletedBoard(byte[] values) {
+		super();
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			super.setCell(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index], values[index]);
+		}
+	}
+	
 	private static final long serialVersionUID = 3331985536204951444L;
 
 }
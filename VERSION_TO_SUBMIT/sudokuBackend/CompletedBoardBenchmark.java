@@ -0,0 +1,107 @@
+package sudokuBackend;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Reports the p50, p99 and p999 time to generate a completed board with the bitmask
+ * depth first search, against the original fill that drew a random start value per
+ * cell and incremented it through row, column and box scans.
+ * Run with: java sudokuBackend.CompletedBoardBenchmark [boards]
+ */
+public class CompletedBoardBenchmark {
+
+	public static void main(String[] args) {
+		int boards = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		// warm up both fills before timing them
+		measure(boards / 10, false);
+		measure(boards / 10, true);
+
+		System.out.println("fill           p50 us    p99 us   p999 us    max us");
+		report("bitmask dfs", measure(boards, false));
+		report("original", measure(boards, true));
+	}
+
+	/**
+	 * Generates seeded boards and returns the sorted generation times.
+	 */
+	private static long[] measure(int boards, boolean legacy) {
+		long[] nanos = new long[boards];
+		for (int seed = 0; seed < boards; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			long start = System.nanoTime();
+			AbstractBoard board = legacy ? new LegacyFill(random) : new CompletedBoard(random);
+			nanos[seed] = System.nanoTime() - start;
+			if (!board.isSolved()) {
+				throw new IllegalStateException("Generated board is not a solution.");
+			}
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	private static void report(String name, long[] nanos) {
+		System.out.printf("%-12s %9.1f %9.1f %9.1f %9.1f%n", name, percentile(nanos, 0.5),
+				percentile(nanos, 0.99), percentile(nanos, 0.999), nanos[nanos.length - 1] / 1e3);
+	}
+
+	/**
+	 * Returns a percentile of sorted times in microseconds.
+	 */
+	private static double percentile(long[] sorted, double fraction) {
+		int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, rank)] / 1e3;
+	}
+
+	/**
+	 * The fill CompletedBoard originally used: each cell starts from a random value and
+	 * increments it until the value fits, stepping back a cell after 9 failures.
+	 */
+	private static class LegacyFill extends AbstractBoard {
+
+		LegacyFill(SplittableRandom numGenerator) {
+			int currValue = 0;
+			int j = 0;
+			int i = 0;
+			int[][] numIncrements = new int[9][9];
+
+			while (i <= Board.MAX_ROW) {
+				while (j <= Board.MAX_COLUMN) {
+					if (numIncrements[i][j] == 0) {
+						currValue = numGenerator.nextInt(9) + 1;
+					} else {
+						currValue = currValue == 9 ? 1 : currValue + 1;
+					}
+					if (checkRow(currValue, i, j) && checkColumn(currValue, i, j)
+							&& checkBox(currValue, i, j)) {
+						setCell(i, j, currValue);
+						j++;
+						if (j == 9) {
+							break;
+						}
+						numIncrements[i][j] = 0;
+					} else {
+						numIncrements[i][j]++;
+					}
+
+					if (numIncrements[i][j] > 8) {
+						removeValue(i, j);
+						if (j == 0) {
+							i--;
+							j = 8;
+						} else {
+							j--;
+						}
+						numIncrements[i][j]++;
+						currValue = getCell(i, j);
+					}
+				}
+				j = 0;
+				i++;
+			}
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+}
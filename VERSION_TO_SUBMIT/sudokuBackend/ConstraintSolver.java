@@ -0,0 +1,223 @@
+package sudokuBackend;
+
+/**
+ * Counts sudoku solutions by constraint propagation and search.
+ * Every cell keeps a 9-bit candidate mask. Before each branch, naked singles (a cell
+ * with one candidate) and hidden singles (a value with one possible cell in a unit)
+ * are propagated to a fixpoint. The search then branches on the unfilled cell with
+ * the fewest candidates (minimum remaining values). Every change is recorded on a
+ * trail so that backtracking restores the previous masks without re-scanning the
+ * board. Each count works on its own small scratch state, so a solver is stateless
+ * and can be shared between threads. The first solution found is recorded in the
+ * result.
+ */
+public class ConstraintSolver implements SolutionCounter {
+
+	public SolverResult countSolutions(byte[] givens, int limit) {
+		long start = System.nanoTime();
+		Search search = new Search(limit);
+		int solutions = search.run(givens);
+		return new SolverResult(solutions, limit, search.nodes, System.nanoTime() - start,
+				search.firstSolution);
+	}
+
+	/**
+	 * The scratch state of one count.
+	 */
+	private static final class Search {
+
+		Search(int limit) {
+			this.limit = limit;
+			candidates = new short[BoardGeometry.CELLS];
+			values = new byte[BoardGeometry.CELLS];
+			trail = new int[TRAIL_SIZE];
+			queue = new int[BoardGeometry.CELLS];
+		}
+
+		/**
+		 * Loads the givens, propagates them and searches for solutions.
+		 * @return the number of solutions found, at most limit.
+		 */
+		int run(byte[] givens) {
+			for (int index = 0; index < BoardGeometry.CELLS; index++) {
+				candidates[index] = BoardGeometry.ALL_VALUES;
+			}
+			for (int index = 0; index < BoardGeometry.CELLS; index++) {
+				if (givens[index] != 0 && !assign(index, givens[index])) {
+					return 0;
+				}
+			}
+			if (propagate()) {
+				search();
+			}
+			return solutions;
+		}
+
+		/**
+		 * Branches on the unfilled cell with the fewest candidates, propagating after
+		 * every guess and undoing through the trail.
+		 */
+		private void search() {
+			nodes++;
+			int best = -1;
+			int bestCount = 10;
+			for (int index = 0; index < BoardGeometry.CELLS && bestCount > 2; index++) {
+				if (values[index] == 0) {
+					int count = Integer.bitCount(candidates[index]);
+					if (count < bestCount) {
+						best = index;
+						bestCount = count;
+					}
+				}
+			}
+			if (best < 0) {
+				if (solutions == 0) {
+					firstSolution = values.clone();
+				}
+				solutions++;
+				return;
+			}
+
+			int remaining = candidates[best];
+			while (remaining != 0 && solutions < limit) {
+				int bit = remaining & -remaining;
+				remaining ^= bit;
+				int mark = trailSize;
+				queueSize = 0;
+				if (assign(best, Integer.numberOfTrailingZeros(bit) + 1) && propagate()) {
+					search();
+				}
+				undo(mark);
+			}
+		}
+
+		/**
+		 * Applies queued placements to their peers and fills hidden singles until nothing
+		 * changes.
+		 * @return false if a contradiction was found.
+		 */
+		private boolean propagate() {
+			do {
+				while (queueSize > 0) {
+					int index = queue[--queueSize];
+					int bit = candidates[index];
+					for (int peer : BoardGeometry.PEERS[index]) {
+						if (!eliminate(peer, bit)) {
+							queueSize = 0;
+							return false;
+						}
+					}
+				}
+				if (!findHiddenSingles()) {
+					queueSize = 0;
+					return false;
+				}
+			} while (queueSize > 0);
+			return true;
+		}
+
+		/**
+		 * Assigns every value that has exactly one possible cell left in some unit.
+		 * @return false if some unit has a value with no possible cell.
+		 */
+		private boolean findHiddenSingles() {
+			for (int unit = 0; unit < BoardGeometry.UNITS; unit++) {
+				int once = 0;
+				int twice = 0;
+				int placed = 0;
+				for (int index : BoardGeometry.UNIT_CELLS[unit]) {
+					int mask = candidates[index];
+					if (values[index] != 0) {
+						placed |= mask;
+					} else {
+						twice |= once & mask;
+						once |= mask;
+					}
+				}
+				if ((once | placed) != BoardGeometry.ALL_VALUES) {
+					return false;
+				}
+				int singles = once & ~twice & ~placed;
+				while (singles != 0) {
+					int bit = singles & -singles;
+					singles ^= bit;
+					for (int index : BoardGeometry.UNIT_CELLS[unit]) {
+						if (values[index] == 0 && (candidates[index] & bit) != 0) {
+							if (!assign(index, Integer.numberOfTrailingZeros(bit) + 1)) {
+								return false;
+							}
+							break;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Fills a cell with value and queues it for propagation to its peers.
+		 * @return false if value is no longer a candidate of the cell.
+		 */
+		private boolean assign(int index, int value) {
+			int bit = BoardGeometry.bitOf(value);
+			if (values[index] != 0 || (candidates[index] & bit) == 0) {
+				return values[index] == value;
+			}
+			trail[trailSize++] = index | ASSIGNED | (candidates[index] << 8);
+			candidates[index] = (short) bit;
+			values[index] = (byte) value;
+			queue[queueSize++] = index;
+			return true;
+		}
+
+		/**
+		 * Removes bit from the candidates of a cell, assigning it if one candidate is left.
+		 * @return false if the cell has no candidates left.
+		 */
+		private boolean eliminate(int index, int bit) {
+			int mask = candidates[index];
+			if ((mask & bit) == 0) {
+				return true;
+			}
+			mask &= ~bit;
+			if (mask == 0) {
+				return false;
+			}
+			trail[trailSize++] = index | (candidates[index] << 8);
+			candidates[index] = (short) mask;
+			if ((mask & (mask - 1)) == 0 && values[index] == 0) {
+				return assign(index, Integer.numberOfTrailingZeros(mask) + 1);
+			}
+			return true;
+		}
+
+		/**
+		 * Restores every change recorded on the trail after mark.
+		 */
+		private void undo(int mark) {
+			while (trailSize > mark) {
+				int entry = trail[--trailSize];
+				int index = entry & 0x7F;
+				candidates[index] = (short) (entry >>> 8);
+				if ((entry & ASSIGNED) != 0) {
+					values[index] = 0;
+				}
+			}
+		}
+
+		// along one search path masks only shrink, so at most 9 changes per cell
+		private static final int TRAIL_SIZE = BoardGeometry.CELLS * 10;
+		private static final int ASSIGNED = 0x80;
+
+		private final short[] candidates;
+		private final byte[] values;
+		private final int[] trail;
+		private int trailSize;
+		private final int[] queue;
+		private int queueSize;
+		private final int limit;
+		private int solutions;
+		private byte[] firstSolution;
+		private long nodes;
+	}
+}
@@ -0,0 +1,207 @@
+package sudokuBackend;
+
+import java.util.Arrays;
+
+/**
+ * Counts sudoku solutions with Knuth's Algorithm X on a dancing links matrix.
+ * The board is an exact cover problem with 324 constraints (cell filled, row/value,
+ * column/value, box/value) and 729 candidate placements of four nodes each. The
+ * links are stored in flat int arrays copied from a shared template. Each thread
+ * keeps its own set of arrays, so a search allocates nothing and one counter can
+ * be shared between threads.
+ */
+public class DancingLinks implements SolutionCounter {
+
+	public SolverResult countSolutions(byte[] values, int limit) {
+		long start = System.nanoTime();
+		Links links = SCRATCH.get();
+		int solutions = links.run(values, limit);
+		return new SolverResult(solutions, limit, links.nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * The link arrays of one search, reused by later searches on the same thread.
+	 */
+	private static final class Links {
+
+		/**
+		 * Allocates the link arrays.
+		 */
+		Links() {
+			left = new int[NODES];
+			right = new int[NODES];
+			up = new int[NODES];
+			down = new int[NODES];
+			size = new int[COLUMNS + 1];
+			unitUsed = new int[BoardGeometry.UNITS];
+		}
+
+		/**
+		 * Resets the links from the template, covers the givens and searches.
+		 * @return the number of solutions found, at most limit.
+		 */
+		int run(byte[] values, int limit) {
+			nodes = 0;
+			System.arraycopy(TEMPLATE_LEFT, 0, left, 0, NODES);
+			System.arraycopy(TEMPLATE_RIGHT, 0, right, 0, NODES);
+			System.arraycopy(TEMPLATE_UP, 0, up, 0, NODES);
+			System.arraycopy(TEMPLATE_DOWN, 0, down, 0, NODES);
+			System.arraycopy(TEMPLATE_SIZE, 0, size, 0, COLUMNS + 1);
+
+			Arrays.fill(unitUsed, 0);
+			for (int index = 0; index < BoardGeometry.CELLS; index++) {
+				if (values[index] != 0) {
+					// a given that repeats a value in one of its units has no solution
+					int bit = BoardGeometry.bitOf(values[index]);
+					for (int unit : BoardGeometry.UNITS_OF[index]) {
+						if ((unitUsed[unit] & bit) != 0) {
+							return 0;
+						}
+						unitUsed[unit] |= bit;
+					}
+					int first = firstNode(index * 9 + values[index] - 1);
+					for (int node = first; node < first + 4; node++) {
+						cover(COLUMN_OF[node]);
+					}
+				}
+			}
+
+			this.limit = limit;
+			solutions = 0;
+			search();
+			return solutions;
+		}
+
+		/**
+		 * Recursively chooses the constraint with the fewest remaining candidates and
+		 * tries each of them, stopping once limit solutions have been counted.
+		 */
+		private void search() {
+			nodes++;
+			if (right[HEAD] == HEAD) {
+				solutions++;
+				return;
+			}
+
+			int column = right[HEAD];
+			for (int c = right[column]; c != HEAD && size[column] > 1; c = right[c]) {
+				if (size[c] < size[column]) {
+					column = c;
+				}
+			}
+			if (size[column] == 0) {
+				return;
+			}
+
+			cover(column);
+			for (int row = down[column]; row != column && solutions < limit; row = down[row]) {
+				for (int node = right[row]; node != row; node = right[node]) {
+					cover(COLUMN_OF[node]);
+				}
+				search();
+				for (int node = left[row]; node != row; node = left[node]) {
+					uncover(COLUMN_OF[node]);
+				}
+			}
+			uncover(column);
+		}
+
+		/**
+		 * Removes a column header and every row that intersects it.
+		 */
+		private void cover(int column) {
+			right[left[column]] = right[column];
+			left[right[column]] = left[column];
+			for (int row = down[column]; row != column; row = down[row]) {
+				for (int node = right[row]; node != row; node = right[node]) {
+					down[up[node]] = down[node];
+					up[down[node]] = up[node];
+					size[COLUMN_OF[node]]--;
+				}
+			}
+		}
+
+		/**
+		 * Restores a column removed by cover, in exactly the reverse order.
+		 */
+		private void uncover(int column) {
+			for (int row = up[column]; row != column; row = up[row]) {
+				for (int node = left[row]; node != row; node = left[node]) {
+					size[COLUMN_OF[node]]++;
+					down[up[node]] = node;
+					up[down[node]] = node;
+				}
+			}
+			right[left[column]] = column;
+			left[right[column]] = column;
+		}
+
+		private final int[] left;
+		private final int[] right;
+		private final int[] up;
+		private final int[] down;
+		private final int[] size;
+		private final int[] unitUsed;
+		private int limit;
+		private int solutions;
+		private long nodes;
+	}
+
+	/**
+	 * Returns the first of the four nodes of a candidate placement.
+	 */
+	private static int firstNode(int candidate) {
+		return COLUMNS + 1 + candidate * 4;
+	}
+
+	private static final int HEAD = 0;
+	private static final int COLUMNS = 324;
+	private static final int NODES = COLUMNS + 1 + 729 * 4;
+
+	private static final int[] TEMPLATE_LEFT = new int[NODES];
+	private static final int[] TEMPLATE_RIGHT = new int[NODES];
+	private static final int[] TEMPLATE_UP = new int[NODES];
+	private static final int[] TEMPLATE_DOWN = new int[NODES];
+	private static final int[] TEMPLATE_SIZE = new int[COLUMNS + 1];
+	private static final int[] COLUMN_OF = new int[NODES];
+
+	private static final ThreadLocal<Links> SCRATCH = new ThreadLocal<Links>() {
+		protected Links initialValue() {
+			return new Links();
+		}
+	};
+
+	static {
+		for (int column = 0; column <= COLUMNS; column++) {
+			TEMPLATE_LEFT[column] = (column + COLUMNS) % (COLUMNS + 1);
+			TEMPLATE_RIGHT[column] = (column + 1) % (COLUMNS + 1);
+			TEMPLATE_UP[column] = column;
+			TEMPLATE_DOWN[column] = column;
+			COLUMN_OF[column] = column;
+		}
+
+		for (int candidate = 0; candidate < 729; candidate++) {
+			int index = candidate / 9;
+			int value = candidate % 9;
+			int[] columns = {
+				1 + index,
+				1 + 81 + BoardGeometry.ROW[index] * 9 + value,
+				1 + 162 + BoardGeometry.COLUMN[index] * 9 + value,
+				1 + 243 + BoardGeometry.BOX[index] * 9 + value
+			};
+			int first = firstNode(candidate);
+			for (int k = 0; k < 4; k++) {
+				int node = first + k;
+				int column = columns[k];
+				COLUMN_OF[node] = column;
+				TEMPLATE_LEFT[node] = first + (k + 3) % 4;
+				TEMPLATE_RIGHT[node] = first + (k + 1) % 4;
+				TEMPLATE_UP[node] = TEMPLATE_UP[column];
+				TEMPLATE_DOWN[node] = column;
+				TEMPLATE_DOWN[TEMPLATE_UP[column]] = node;
+				TEMPLATE_UP[column] = node;
+				TEMPLATE_SIZE[column]++;
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package sudokuBackend;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops puzzles that are the same as one already seen, up to symmetry, during bulk
+ * generation or import. Every puzzle is reduced to the key of its minlex form and
+ * looked up in a hash set, so a batch is deduplicated without comparing puzzles
+ * pairwise. A filter may be shared by any number of generating threads.
+ */
+public class DuplicateFilter {
+
+	/**
+	 * Constructs an empty filter.
+	 */
+	public DuplicateFilter() {
+		keys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		duplicates = new AtomicLong();
+	}
+
+	/**
+	 * Records a puzzle unless an equivalent one has been seen.
+	 * @param puzzle the puzzle to record.
+	 * @return true if the puzzle is new, false if it is a duplicate.
+	 */
+	public boolean offer(Puzzle puzzle) {
+		return offer(puzzle.getBoard().copyValues());
+	}
+
+	/**
+	 * Records a board unless an equivalent one has been seen.
+	 * @param givens the 81 cell values in row-major order, 0 for an empty cell.
+	 * @return true if the board is new, false if it is a duplicate.
+	 */
+	public boolean offer(byte[] givens) {
+		if (keys.add(CanonicalForm.key(givens))) {
+			return true;
+		}
+		duplicates.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Returns the number of distinct puzzles recorded.
+	 * @return the number of puzzles kept.
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Returns the number of puzzles dropped as duplicates.
+	 * @return the duplicate count.
+	 */
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+
+	private final Set<String> keys;
+	private final AtomicLong duplicates;
+}
@@ -0,0 +1,93 @@
+package sudokuBackend;
+
+/**
+ * Limits the work a SolvableBoard may spend removing clues. Generation stops as soon
+ * as the board is down to the target number of clues, or the number of uniqueness
+ * checks or solver nodes reaches its limit. Budgets count work rather than time, so
+ * the same budget gives the same puzzle quality on any machine.
+ */
+public class GenerationBudget {
+
+	/**
+	 * Constructs a budget.
+	 * @param maxChecks the number of uniqueness checks allowed, or UNLIMITED.
+	 * @param maxNodes the number of solver nodes allowed, or UNLIMITED.
+	 * @param targetClues stop once the board has this many clues or fewer, or NO_TARGET.
+	 */
+	public GenerationBudget(long maxChecks, long maxNodes, int targetClues) {
+		if (maxChecks < 0 || maxNodes < 0 || targetClues < 0) {
+			throw new IllegalArgumentException("Budget limits cannot be negative.");
+		}
+		this.maxChecks = maxChecks;
+		this.maxNodes = maxNodes;
+		this.targetClues = targetClues;
+	}
+
+	/**
+	 * Returns the default budget of a difficulty. Easy and medium aim for 81 - (41 + 4n)
+	 * clues, where n is the value of the difficulty; hard is bounded by its single
+	 * removal pass; very hard is limited to 1500 uniqueness checks.
+	 * @param difficulty the difficulty being generated.
+	 * @return the default budget for difficulty.
+	 */
+	public static GenerationBudget forDifficulty(Difficulty difficulty) {
+		if (difficulty == Difficulty.EASY || difficulty == Difficulty.MEDIUM) {
+			return new GenerationBudget(UNLIMITED, UNLIMITED,
+					BoardGeometry.CELLS - (41 + difficulty.getValue() * 4));
+		} else if (difficulty == Difficulty.HARD) {
+			return new GenerationBudget(UNLIMITED, UNLIMITED, NO_TARGET);
+		} else {
+			return new GenerationBudget(1500, UNLIMITED, NO_TARGET);
+		}
+	}
+
+	/**
+	 * Returns the number of uniqueness checks allowed.
+	 * @return the check limit, or UNLIMITED.
+	 */
+	public long getMaxChecks() {
+		return maxChecks;
+	}
+
+	/**
+	 * Returns the number of solver nodes allowed.
+	 * @return the node limit, or UNLIMITED.
+	 */
+	public long getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Returns the clue count at which generation stops.
+	 * @return the target clue count, or NO_TARGET.
+	 */
+	public int getTargetClues() {
+		return targetClues;
+	}
+
+	/**
+	 * Returns true if the given amount of work uses up this budget.
+	 * @param checks the uniqueness checks done so far.
+	 * @param nodes the solver nodes visited so far.
+	 * @return true if either limit has been reached.
+	 */
+	public boolean isExhausted(long checks, long nodes) {
+		return checks >= maxChecks || nodes >= maxNodes;
+	}
+
+	/**
+	 * Returns true if a board with the given number of clues meets the target.
+	 * @param clues the clues left on the board.
+	 * @return true if clues is at or below the target clue count.
+	 */
+	public boolean isTargetReached(int clues) {
+		return clues <= targetClues;
+	}
+
+	public static final long UNLIMITED = Long.MAX_VALUE;
+	public static final int NO_TARGET = 0;
+
+	private final long maxChecks;
+	private final long maxNodes;
+	private final int targetClues;
+}
@@ -0,0 +1,107 @@
+package sudokuBackend;
+
+/**
+ * Describes the work done to generate one SolvableBoard.
+ */
+public class GenerationStats {
+
+	/**
+	 * Constructs a set of generation statistics.
+	 * @param checks the number of uniqueness checks run.
+	 * @param nodes the number of solver nodes visited by those checks.
+	 * @param clues the number of clues left on the finished board.
+	 * @param elapsedNanos the time generation took.
+	 * @param budgetExhausted true if generation stopped because the budget ran out.
+	 * @param memoLookups the number of uniqueness results looked up in the memo.
+	 * @param memoHits the number of lookups answered without running the solver.
+	 */
+	public GenerationStats(long checks, long nodes, int clues, long elapsedNanos,
+			boolean budgetExhausted, long memoLookups, long memoHits) {
+		this.checks = checks;
+		this.nodes = nodes;
+		this.clues = clues;
+		this.elapsedNanos = elapsedNanos;
+		this.budgetExhausted = budgetExhausted;
+		this.memoLookups = memoLookups;
+		this.memoHits = memoHits;
+	}
+
+	/**
+	 * Returns the number of uniqueness checks run.
+	 * @return the number of checks.
+	 */
+	public long getChecks() {
+		return checks;
+	}
+
+	/**
+	 * Returns the number of solver nodes visited.
+	 * @return the number of nodes.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of clues left on the board.
+	 * @return the clue count.
+	 */
+	public int getClues() {
+		return clues;
+	}
+
+	/**
+	 * Returns the time generation took.
+	 * @return the elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns whether generation stopped because its budget ran out rather than
+	 * reaching its target or running out of clues to try.
+	 * @return true if the budget was exhausted.
+	 */
+	public boolean isBudgetExhausted() {
+		return budgetExhausted;
+	}
+
+	/**
+	 * Returns the number of uniqueness results looked up in the memo.
+	 * @return the number of lookups, 0 if generation ran without a memo.
+	 */
+	public long getMemoLookups() {
+		return memoLookups;
+	}
+
+	/**
+	 * Returns the number of memo lookups that saved a solver run.
+	 * @return the number of hits.
+	 */
+	public long getMemoHits() {
+		return memoHits;
+	}
+
+	/**
+	 * Returns the fraction of memo lookups that saved a solver run.
+	 * @return the hit rate between 0 and 1, or 0 if there were no lookups.
+	 */
+	public double getMemoHitRate() {
+		return memoLookups == 0 ? 0 : (double) memoHits / memoLookups;
+	}
+
+	public String toString() {
+		return clues + " clues, " + checks + " checks, " + nodes + " nodes, "
+				+ memoHits + "/" + memoLookups + " memo hits, "
+				+ elapsedNanos / 1000 + " us" + (budgetExhausted ? " (budget exhausted)" : "");
+	}
+
+	private final long checks;
+	private final long nodes;
+	private final int clues;
+	private final long elapsedNanos;
+	private final boolean budgetExhausted;
+	private final long memoLookups;
+	private final long memoHits;
+}
@@ -0,0 +1,46 @@
+package sudokuBackend;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports the clue count achieved by the very hard generator against wall time, for
+ * a range of check budgets and for 1 to N ForkJoinPool threads. Generation is
+ * deterministic per seed, so the clue counts match across thread counts and only
+ * the time changes.
+ * Run with: java sudokuBackend.GeneratorBenchmark [puzzles] [max threads]
+ */
+public class GeneratorBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		long[] budgets = {25, 50, 100, 200, GenerationBudget.UNLIMITED};
+
+		System.out.println("threads  max checks  mean clues  mean ms/puzzle");
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			for (long maxChecks : budgets) {
+				final GenerationBudget budget = new GenerationBudget(maxChecks,
+						GenerationBudget.UNLIMITED, GenerationBudget.NO_TARGET);
+				long clues = 0;
+				long start = System.nanoTime();
+				for (int seed = 0; seed < puzzles; seed++) {
+					final long puzzleSeed = seed;
+					Puzzle puzzle = pool.submit(new Callable<Puzzle>() {
+						public Puzzle call() {
+							return Puzzle.generate(puzzleSeed, Difficulty.VERY_HARD, budget);
+						}
+					}).get();
+					clues += puzzle.getBoard().getGenerationStats().getClues();
+				}
+				double millis = (System.nanoTime() - start) / 1e6 / puzzles;
+				System.out.printf("%7d  %10s  %10.2f  %14.2f%n", threads,
+						maxChecks == GenerationBudget.UNLIMITED ? "unlimited" : Long.toString(maxChecks),
+						(double) clues / puzzles, millis);
+			}
+			pool.shutdown();
+		}
+	}
+}
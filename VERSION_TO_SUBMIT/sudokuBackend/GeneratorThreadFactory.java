@@ -0,0 +1,29 @@
+package sudokuBackend;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates low priority daemon threads for background generation, so that generation
+ * neither competes with the event dispatch thread nor keeps the application alive.
+ */
+class GeneratorThreadFactory implements ThreadFactory {
+
+	/**
+	 * Creates a factory naming its threads prefix-1, prefix-2, ...
+	 * @param prefix the start of every thread name.
+	 */
+	GeneratorThreadFactory(String prefix) {
+		this.prefix = prefix;
+	}
+
+	public Thread newThread(Runnable task) {
+		Thread thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	}
+
+	private final String prefix;
+	private final AtomicInteger count = new AtomicInteger();
+}
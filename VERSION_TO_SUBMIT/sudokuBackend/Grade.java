@@ -0,0 +1,116 @@
+package sudokuBackend;
+
+/**
+ * How hard a puzzle is for a person, found by solving it step by step with a
+ * HumanSolver: the hardest technique it needs, how often each technique was used and a
+ * score adding up the score of every step. A puzzle the ladder cannot finish has
+ * BEYOND_LADDER added to its score. The hardest technique decides the difficulty tier,
+ * so puzzles can be routed or rejected by how they play rather than by their clues.
+ */
+public class Grade {
+
+	private Grade(Technique hardest, int[] counts, int score, boolean solved) {
+		this.hardest = hardest;
+		this.counts = counts;
+		this.score = score;
+		this.solved = solved;
+	}
+
+	/**
+	 * Grades a board.
+	 * @param board the board, its filled cells taken as givens.
+	 * @return the grade of the board.
+	 */
+	public static Grade of(SolvableBoard board) {
+		return of(board.copyValues());
+	}
+
+	/**
+	 * Grades a board.
+	 * @param givens the 81 cell values in row-major order, 0 for an empty cell.
+	 * @return the grade of the board.
+	 */
+	public static Grade of(byte[] givens) {
+		HumanSolver solver = new HumanSolver(givens);
+		int[] counts = new int[Technique.values().length];
+		Technique hardest = null;
+		int score = 0;
+		Technique technique;
+		while ((technique = solver.step()) != null) {
+			counts[technique.ordinal()]++;
+			score += technique.getScore();
+			if (hardest == null || technique.compareTo(hardest) > 0) {
+				hardest = technique;
+			}
+		}
+		if (!solver.isSolved()) {
+			score += BEYOND_LADDER;
+		}
+		return new Grade(hardest, counts, score, solver.isSolved());
+	}
+
+	/**
+	 * Returns the hardest technique the puzzle needed.
+	 * @return the technique, or null if the puzzle needed no step.
+	 */
+	public Technique getHardest() {
+		return hardest;
+	}
+
+	/**
+	 * Returns the number of steps solved with a technique.
+	 * @param technique the technique to count.
+	 * @return the number of steps.
+	 */
+	public int getCount(Technique technique) {
+		return counts[technique.ordinal()];
+	}
+
+	/**
+	 * Returns the score of the puzzle.
+	 * @return the total score of its steps, plus BEYOND_LADDER if the ladder could not
+	 * solve it.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns true if the techniques of the ladder solve the puzzle.
+	 * @return true if the puzzle was solved without guessing.
+	 */
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/**
+	 * Returns the difficulty tier of the puzzle: singles only are easy, locked
+	 * candidates and pairs medium, triples and X-Wings hard, and forcing chains or more
+	 * very hard.
+	 * @return the difficulty the puzzle plays at.
+	 */
+	public Difficulty getDifficulty() {
+		if (!solved || hardest == Technique.FORCING_CHAIN) {
+			return Difficulty.VERY_HARD;
+		} else if (hardest == null || hardest.compareTo(Technique.NAKED_SINGLE) <= 0) {
+			return Difficulty.EASY;
+		} else if (hardest.compareTo(Technique.HIDDEN_PAIR) <= 0) {
+			return Difficulty.MEDIUM;
+		} else {
+			return Difficulty.HARD;
+		}
+	}
+
+	public String toString() {
+		return (hardest == null ? "no steps" : hardest.toString()) + (solved ? "" : " (unsolved)")
+				+ ", score " + score;
+	}
+
+	// added to the score of a puzzle the ladder cannot solve
+	public static final int BEYOND_LADDER = 1000;
+
+	private final Technique hardest;
+	private final int[] counts;
+	private final int score;
+	private final boolean solved;
+}
@@ -0,0 +1,43 @@
+package sudokuBackend;
+
+/**
+ * Grades generated puzzles of every difficulty and reports how many the grader gets
+ * through per second, together with the tier each nominal difficulty actually plays
+ * at and its mean score.
+ * Run with: java sudokuBackend.GraderBenchmark [puzzles per difficulty]
+ */
+public class GraderBenchmark {
+
+	public static void main(String[] args) {
+		int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Difficulty[] difficulties = Difficulty.values();
+
+		System.out.println("generated    graded easy/medium/hard/very hard  unsolved  mean score  puzzles/s");
+		for (Difficulty difficulty : difficulties) {
+			byte[][] boards = new byte[puzzles][];
+			for (int seed = 0; seed < puzzles; seed++) {
+				boards[seed] = Puzzle.generate(seed, difficulty).getBoard().copyValues();
+			}
+			// warm up before timing
+			for (byte[] board : boards) {
+				Grade.of(board);
+			}
+			int[] tiers = new int[difficulties.length];
+			int unsolved = 0;
+			long score = 0;
+			long start = System.nanoTime();
+			for (byte[] board : boards) {
+				Grade grade = Grade.of(board);
+				tiers[grade.getDifficulty().ordinal()]++;
+				if (!grade.isSolved()) {
+					unsolved++;
+				}
+				score += grade.getScore();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%-10s  %30s  %8d  %10.1f  %9.0f%n", difficulty,
+					tiers[0] + "/" + tiers[1] + "/" + tiers[2] + "/" + tiers[3], unsolved,
+					(double) score / puzzles, puzzles / seconds);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package sudokuBackend;
+
+/**
+ * The next step a player could take, as found by a HumanSolver: the technique, the
+ * cells it is deduced from and the value it places or the candidates it eliminates. A
+ * board holding a wrong value gets a mistake hint pointing at that cell instead, since
+ * nothing deduced from a wrong value can be trusted.
+ */
+public class Hint {
+
+	/**
+	 * Constructs a hint for a step.
+	 * @param technique the technique of the step, or null for a mistake.
+	 * @param cells the indices of the cells the step is deduced from.
+	 * @param placedIndex the cell the step fills, or -1 if it only eliminates.
+	 * @param placedValue the value the step places, or 0.
+	 * @param eliminated the candidates eliminated from every cell, as 9-bit masks.
+	 */
+	Hint(Technique technique, int[] cells, int placedIndex, int placedValue, short[] eliminated) {
+		this.technique = technique;
+		this.cells = cells;
+		this.placedIndex = placedIndex;
+		this.placedValue = placedValue;
+		this.eliminated = eliminated;
+	}
+
+	/**
+	 * Constructs a hint pointing out a wrong value.
+	 * @param index the cell index (row * 9 + column) of the wrong value.
+	 * @return the mistake hint.
+	 */
+	public static Hint mistake(int index) {
+		return new Hint(null, new int[] {index}, -1, 0, new short[BoardGeometry.CELLS]);
+	}
+
+	/**
+	 * Returns true if this hint points out a wrong value rather than a step.
+	 * @return true for a mistake hint.
+	 */
+	public boolean isMistake() {
+		return technique == null;
+	}
+
+	/**
+	 * Returns the technique of the step.
+	 * @return the technique, or null for a mistake hint.
+	 */
+	public Technique getTechnique() {
+		return technique;
+	}
+
+	/**
+	 * Returns the cells the step is deduced from, or the wrong cell of a mistake hint.
+	 * @return the cell indices (row * 9 + column).
+	 */
+	public int[] getCells() {
+		return cells.clone();
+	}
+
+	/**
+	 * Returns the cell the step fills.
+	 * @return the cell index, or -1 if the step only eliminates candidates.
+	 */
+	public int getPlacedIndex() {
+		return placedIndex;
+	}
+
+	/**
+	 * Returns the value the step places.
+	 * @return the value, or 0 if the step only eliminates candidates.
+	 */
+	public int getPlacedValue() {
+		return placedValue;
+	}
+
+	/**
+	 * Returns the candidates the step eliminates from a cell.
+	 * @param index the cell index (row * 9 + column).
+	 * @return a mask with bit (value - 1) set for every eliminated candidate.
+	 */
+	public int getEliminated(int index) {
+		return eliminated[index];
+	}
+
+	/**
+	 * Describes the hint for the player, e.g. "Hidden Single: r3c4 is 7".
+	 */
+	public String toString() {
+		if (isMistake()) {
+			return "The value at " + cellName(cells[0]) + " is wrong.";
+		}
+		if (placedIndex >= 0) {
+			return technique + ": " + cellName(placedIndex) + " is " + placedValue + ".";
+		}
+		StringBuilder text = new StringBuilder(technique + ": remove");
+		String separator = " ";
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (eliminated[index] != 0) {
+				text.append(separator);
+				String values = "";
+				for (int value = 1; value <= 9; value++) {
+					if ((eliminated[index] & BoardGeometry.bitOf(value)) != 0) {
+						values += values.isEmpty() ? value : "," + value;
+					}
+				}
+				text.append(values).append(" from ").append(cellName(index));
+				separator = "; ";
+			}
+		}
+		return text.append('.').toString();
+	}
+
+	/**
+	 * Returns the name of a cell as row and column numbered from 1, e.g. r3c4.
+	 */
+	private static String cellName(int index) {
+		return "r" + (BoardGeometry.ROW[index] + 1) + "c" + (BoardGeometry.COLUMN[index] + 1);
+	}
+
+	private final Technique technique;
+	private final int[] cells;
+	private final int placedIndex;
+	private final int placedValue;
+	private final short[] eliminated;
+}
@@ -0,0 +1,656 @@
+package sudokuBackend;
+
+/**
+ * Solves a board the way a person would, one deduction at a time. Each step tries the
+ * techniques of the Technique ladder from the easiest up and applies the first that
+ * places a value or eliminates candidates. The candidates of every cell are kept as a
+ * 9-bit mask, updated as values are placed, and every technique is a scan over those
+ * masks. The cells a step was deduced from, and what it placed or eliminated, can be
+ * read back until the next step. A solver is not thread-safe.
+ */
+public class HumanSolver {
+
+	/**
+	 * Constructs a solver for a board.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 */
+	public HumanSolver(byte[] values) {
+		this();
+		reset(values);
+	}
+
+	/**
+	 * Constructs a solver for the current state of a board.
+	 * @param board the board, its filled cells taken as known.
+	 */
+	public HumanSolver(SolvableBoard board) {
+		this();
+		reset(board);
+	}
+
+	private HumanSolver() {
+		values = new byte[BoardGeometry.CELLS];
+		candidates = new short[BoardGeometry.CELLS];
+		cells = new int[BoardGeometry.CELLS];
+		eliminated = new short[BoardGeometry.CELLS];
+		eliminatedCells = new int[BoardGeometry.CELLS];
+		masks = new int[9];
+		placedIndex = -1;
+	}
+
+	/**
+	 * Starts over on another board, reusing the arrays of this solver.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 */
+	public void reset(byte[] values) {
+		clearStep();
+		broken = false;
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			this.values[index] = 0;
+			candidates[index] = BoardGeometry.ALL_VALUES;
+		}
+		empty = BoardGeometry.CELLS;
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (values[index] != 0) {
+				if ((candidates[index] & BoardGeometry.bitOf(values[index])) == 0) {
+					broken = true;
+				}
+				place(index, values[index]);
+			}
+		}
+	}
+
+	/**
+	 * Starts over on the current state of a board. The candidates are copied from the
+	 * unit masks the board keeps up to date as values change, so this costs one pass over
+	 * the cells.
+	 * @param board the board, its filled cells taken as known.
+	 */
+	public void reset(SolvableBoard board) {
+		reset(board, null);
+	}
+
+	/**
+	 * Starts over on the current state of a board, narrowing the candidates of every
+	 * empty cell to the pencil marks the player has left in it, so that eliminations the
+	 * player has already made are not found again.
+	 * @param board the board, its filled cells taken as known.
+	 * @param marks the 9-bit pencil marks of every cell, 0 for a cell without marks; or
+	 * null to use the board alone.
+	 */
+	public void reset(SolvableBoard board, short[] marks) {
+		clearStep();
+		broken = board.hasConflicts();
+		empty = 0;
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			int value = board.valueAt(index);
+			values[index] = (byte) value;
+			if (value == 0) {
+				candidates[index] = (short) board.candidates(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index]);
+				if (marks != null && marks[index] != 0) {
+					candidates[index] &= marks[index];
+					if (candidates[index] == 0) {
+						broken = true;
+					}
+				}
+				empty++;
+			} else {
+				candidates[index] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Solves one step with the easiest technique that makes progress.
+	 * @return the technique used, or null if the board is solved, contradicts itself or
+	 * needs a technique beyond the ladder.
+	 */
+	public Technique step() {
+		return step(Technique.FORCING_CHAIN);
+	}
+
+	/**
+	 * Solves one step with the easiest technique that makes progress, trying no technique
+	 * harder than a ceiling.
+	 * @param hardest the hardest technique to try.
+	 * @return the technique used, or null if the board is solved, contradicts itself or
+	 * needs a technique harder than hardest.
+	 */
+	public Technique step(Technique hardest) {
+		clearStep();
+		if (broken || empty == 0) {
+			return null;
+		}
+		int ceiling = hardest.ordinal();
+		// the singles are the only techniques that find contradictions
+		if (hiddenSingle() || !broken && ceiling >= Technique.NAKED_SINGLE.ordinal() && nakedSingle()) {
+			return technique;
+		}
+		if (!broken && (ceiling >= Technique.POINTING.ordinal() && pointing()
+				|| ceiling >= Technique.CLAIMING.ordinal() && claiming()
+				|| ceiling >= Technique.NAKED_PAIR.ordinal() && nakedSubset(2)
+				|| ceiling >= Technique.HIDDEN_PAIR.ordinal() && hiddenSubset(2)
+				|| ceiling >= Technique.NAKED_TRIPLE.ordinal() && nakedSubset(3)
+				|| ceiling >= Technique.HIDDEN_TRIPLE.ordinal() && hiddenSubset(3)
+				|| ceiling >= Technique.X_WING.ordinal() && xWing()
+				|| ceiling >= Technique.FORCING_CHAIN.ordinal() && forcingChain())) {
+			return technique;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if every cell holds a value.
+	 * @return true if the board is solved.
+	 */
+	public boolean isSolved() {
+		return empty == 0 && !broken;
+	}
+
+	/**
+	 * Returns true if the board has been found to have no solution.
+	 * @return true if some cell or unit has run out of candidates.
+	 */
+	public boolean isBroken() {
+		return broken;
+	}
+
+	/**
+	 * Returns the value of a cell.
+	 * @param index the cell index (row * 9 + column).
+	 * @return the value of the cell, or 0 if it is empty.
+	 */
+	public int getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns the candidates left for a cell.
+	 * @param index the cell index (row * 9 + column).
+	 * @return a mask with bit (value - 1) set for every candidate, 0 for a filled cell.
+	 */
+	public int getCandidates(int index) {
+		return candidates[index];
+	}
+
+	/**
+	 * Returns the technique of the last step.
+	 * @return the technique, or null if the last step made no progress.
+	 */
+	public Technique getTechnique() {
+		return technique;
+	}
+
+	/**
+	 * Returns the cells the last step was deduced from: the unit of a hidden single,
+	 * the cells of a subset, the corners of an X-Wing and so on.
+	 * @return the indices of the cells.
+	 */
+	public int[] getCells() {
+		int[] copy = new int[cellCount];
+		System.arraycopy(cells, 0, copy, 0, cellCount);
+		return copy;
+	}
+
+	/**
+	 * Returns the cell the last step placed a value in.
+	 * @return the cell index, or -1 if the last step only eliminated candidates.
+	 */
+	public int getPlacedIndex() {
+		return placedIndex;
+	}
+
+	/**
+	 * Returns the value the last step placed.
+	 * @return the value, or 0 if the last step only eliminated candidates.
+	 */
+	public int getPlacedValue() {
+		return placedIndex < 0 ? 0 : values[placedIndex];
+	}
+
+	/**
+	 * Describes the last step as a hint.
+	 * @return the hint, or null if the last step made no progress.
+	 */
+	public Hint getHint() {
+		if (technique == null) {
+			return null;
+		}
+		return new Hint(technique, getCells(), placedIndex, getPlacedValue(), eliminated.clone());
+	}
+
+	/**
+	 * Returns the candidates the last step eliminated from a cell.
+	 * @param index the cell index (row * 9 + column).
+	 * @return a mask with bit (value - 1) set for every eliminated candidate.
+	 */
+	public int getEliminated(int index) {
+		return eliminated[index];
+	}
+
+	/**
+	 * Places a value and removes it from the candidates of the cell's peers.
+	 */
+	private void place(int index, int value) {
+		values[index] = (byte) value;
+		candidates[index] = 0;
+		empty--;
+		int bit = BoardGeometry.bitOf(value);
+		for (int peer : BoardGeometry.PEERS[index]) {
+			candidates[peer] &= ~bit;
+		}
+	}
+
+	/**
+	 * Places a value as the outcome of a step.
+	 */
+	private void placeStep(int index, int value, Technique used) {
+		place(index, value);
+		placedIndex = index;
+		technique = used;
+	}
+
+	/**
+	 * Removes candidates from a cell as the outcome of a step.
+	 * @return true if any of them were still candidates.
+	 */
+	private boolean eliminate(int index, int mask) {
+		int removed = candidates[index] & mask;
+		if (removed == 0) {
+			return false;
+		}
+		candidates[index] &= ~removed;
+		if (eliminated[index] == 0) {
+			eliminatedCells[eliminatedCount++] = index;
+		}
+		eliminated[index] |= removed;
+		return true;
+	}
+
+	private void addCell(int index) {
+		cells[cellCount++] = index;
+	}
+
+	private void clearStep() {
+		technique = null;
+		cellCount = 0;
+		placedIndex = -1;
+		for (int k = 0; k < eliminatedCount; k++) {
+			eliminated[eliminatedCells[k]] = 0;
+		}
+		eliminatedCount = 0;
+	}
+
+	/**
+	 * A value that can only go in one cell of a unit. Also finds the contradiction of a
+	 * value that can go nowhere in a unit.
+	 */
+	private boolean hiddenSingle() {
+		for (int unit = 0; unit < BoardGeometry.UNITS; unit++) {
+			int[] unitCells = BoardGeometry.UNIT_CELLS[unit];
+			int seen = 0;
+			int twice = 0;
+			int placed = 0;
+			for (int index : unitCells) {
+				if (values[index] != 0) {
+					placed |= BoardGeometry.bitOf(values[index]);
+				} else {
+					twice |= seen & candidates[index];
+					seen |= candidates[index];
+				}
+			}
+			if ((seen | placed) != BoardGeometry.ALL_VALUES) {
+				broken = true;
+				return false;
+			}
+			int once = seen & ~twice;
+			if (once != 0) {
+				int bit = Integer.lowestOneBit(once);
+				for (int index : unitCells) {
+					addCell(index);
+				}
+				for (int index : unitCells) {
+					if ((candidates[index] & bit) != 0) {
+						placeStep(index, Integer.numberOfTrailingZeros(bit) + 1, Technique.HIDDEN_SINGLE);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A cell with one candidate left. Also finds the contradiction of a cell with none.
+	 */
+	private boolean nakedSingle() {
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (values[index] == 0) {
+				int mask = candidates[index];
+				if (mask == 0) {
+					broken = true;
+					return false;
+				}
+				if ((mask & (mask - 1)) == 0) {
+					addCell(index);
+					placeStep(index, Integer.numberOfTrailingZeros(mask) + 1, Technique.NAKED_SINGLE);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A value whose candidates in a box all lie on one row or column, and so can be
+	 * eliminated from the rest of that line.
+	 */
+	private boolean pointing() {
+		for (int box = 0; box < 9; box++) {
+			int[] boxCells = BoardGeometry.UNIT_CELLS[18 + box];
+			for (int bit = 1; bit < BoardGeometry.ALL_VALUES; bit <<= 1) {
+				int rows = 0;
+				int columns = 0;
+				for (int index : boxCells) {
+					if ((candidates[index] & bit) != 0) {
+						rows |= 1 << BoardGeometry.ROW[index];
+						columns |= 1 << BoardGeometry.COLUMN[index];
+					}
+				}
+				if ((rows != 0 && Integer.bitCount(rows) == 1
+						&& eliminateOutsideBox(Integer.numberOfTrailingZeros(rows), box, bit))
+						|| (columns != 0 && Integer.bitCount(columns) == 1
+						&& eliminateOutsideBox(9 + Integer.numberOfTrailingZeros(columns), box, bit))) {
+					addCellsWith(boxCells, bit);
+					technique = Technique.POINTING;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean eliminateOutsideBox(int line, int box, int bit) {
+		boolean progress = false;
+		for (int index : BoardGeometry.UNIT_CELLS[line]) {
+			if (BoardGeometry.BOX[index] != box) {
+				progress |= eliminate(index, bit);
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * A value whose candidates in a row or column all lie in one box, and so can be
+	 * eliminated from the rest of that box.
+	 */
+	private boolean claiming() {
+		for (int line = 0; line < 18; line++) {
+			int[] lineCells = BoardGeometry.UNIT_CELLS[line];
+			for (int bit = 1; bit < BoardGeometry.ALL_VALUES; bit <<= 1) {
+				int boxes = 0;
+				for (int index : lineCells) {
+					if ((candidates[index] & bit) != 0) {
+						boxes |= 1 << BoardGeometry.BOX[index];
+					}
+				}
+				if (boxes == 0 || Integer.bitCount(boxes) != 1) {
+					continue;
+				}
+				boolean progress = false;
+				for (int index : BoardGeometry.UNIT_CELLS[18 + Integer.numberOfTrailingZeros(boxes)]) {
+					if (BoardGeometry.UNITS_OF[index][line < 9 ? 0 : 1] != line) {
+						progress |= eliminate(index, bit);
+					}
+				}
+				if (progress) {
+					addCellsWith(lineCells, bit);
+					technique = Technique.CLAIMING;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void addCellsWith(int[] unitCells, int bit) {
+		for (int index : unitCells) {
+			if ((candidates[index] & bit) != 0) {
+				addCell(index);
+			}
+		}
+	}
+
+	/**
+	 * size cells of a unit whose candidates together are size values, which can then be
+	 * eliminated from the other cells of the unit.
+	 */
+	private boolean nakedSubset(int size) {
+		for (int unit = 0; unit < BoardGeometry.UNITS; unit++) {
+			int[] unitCells = BoardGeometry.UNIT_CELLS[unit];
+			int open = 0;
+			for (int k = 0; k < 9; k++) {
+				int count = Integer.bitCount(candidates[unitCells[k]]);
+				if (count >= 2 && count <= size) {
+					open |= 1 << k;
+				}
+			}
+			if (nakedSubset(unitCells, open, size, 0, 0, 0)) {
+				technique = size == 2 ? Technique.NAKED_PAIR : Technique.NAKED_TRIPLE;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Extends a choice of cells (positions in the unit) by the open positions from start
+	 * on, until size are chosen.
+	 */
+	private boolean nakedSubset(int[] unitCells, int open, int size, int start, int chosen, int union) {
+		if (Integer.bitCount(union) > size) {
+			return false;
+		}
+		if (Integer.bitCount(chosen) == size) {
+			if (Integer.bitCount(union) < size) {
+				return false;
+			}
+			boolean progress = false;
+			for (int k = 0; k < 9; k++) {
+				if ((chosen & 1 << k) == 0) {
+					progress |= eliminate(unitCells[k], union);
+				}
+			}
+			if (progress) {
+				for (int k = 0; k < 9; k++) {
+					if ((chosen & 1 << k) != 0) {
+						addCell(unitCells[k]);
+					}
+				}
+			}
+			return progress;
+		}
+		for (int k = start; k < 9; k++) {
+			if ((open & 1 << k) != 0
+					&& nakedSubset(unitCells, open, size, k + 1, chosen | 1 << k, union | candidates[unitCells[k]])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * size values that can only go in the same size cells of a unit, whose other
+	 * candidates can then be eliminated.
+	 */
+	private boolean hiddenSubset(int size) {
+		int[] positions = masks;
+		for (int unit = 0; unit < BoardGeometry.UNITS; unit++) {
+			int[] unitCells = BoardGeometry.UNIT_CELLS[unit];
+			int open = 0;
+			for (int value = 0; value < 9; value++) {
+				positions[value] = 0;
+				for (int k = 0; k < 9; k++) {
+					if ((candidates[unitCells[k]] & 1 << value) != 0) {
+						positions[value] |= 1 << k;
+					}
+				}
+				int count = Integer.bitCount(positions[value]);
+				if (count >= 2 && count <= size) {
+					open |= 1 << value;
+				}
+			}
+			if (hiddenSubset(unitCells, positions, open, size, 0, 0, 0)) {
+				technique = size == 2 ? Technique.HIDDEN_PAIR : Technique.HIDDEN_TRIPLE;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Extends a choice of values (as a mask) by the open values from start on, until
+	 * size are chosen.
+	 */
+	private boolean hiddenSubset(int[] unitCells, int[] positions, int open, int size, int start,
+			int chosen, int union) {
+		if (Integer.bitCount(union) > size) {
+			return false;
+		}
+		if (Integer.bitCount(chosen) == size) {
+			if (Integer.bitCount(union) < size) {
+				return false;
+			}
+			boolean progress = false;
+			for (int k = 0; k < 9; k++) {
+				if ((union & 1 << k) != 0) {
+					progress |= eliminate(unitCells[k], ~chosen & BoardGeometry.ALL_VALUES);
+				}
+			}
+			if (progress) {
+				for (int k = 0; k < 9; k++) {
+					if ((union & 1 << k) != 0) {
+						addCell(unitCells[k]);
+					}
+				}
+			}
+			return progress;
+		}
+		for (int value = start; value < 9; value++) {
+			if ((open & 1 << value) != 0 && hiddenSubset(unitCells, positions, open, size, value + 1,
+					chosen | 1 << value, union | positions[value])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Two rows in which a value can only go in the same two columns, so it can be
+	 * eliminated from the rest of those columns; or the same with rows and columns
+	 * swapped.
+	 */
+	private boolean xWing() {
+		int[] lines = masks;
+		for (int bit = 1; bit < BoardGeometry.ALL_VALUES; bit <<= 1) {
+			for (int base = 0; base <= 9; base += 9) {
+				for (int line = 0; line < 9; line++) {
+					lines[line] = 0;
+					for (int k = 0; k < 9; k++) {
+						if ((candidates[BoardGeometry.UNIT_CELLS[base + line][k]] & bit) != 0) {
+							lines[line] |= 1 << k;
+						}
+					}
+				}
+				for (int first = 0; first < 9; first++) {
+					if (Integer.bitCount(lines[first]) != 2) {
+						continue;
+					}
+					for (int second = first + 1; second < 9; second++) {
+						if (lines[second] != lines[first]) {
+							continue;
+						}
+						boolean progress = false;
+						for (int k = 0; k < 9; k++) {
+							if ((lines[first] & 1 << k) == 0) {
+								continue;
+							}
+							// the crossing line: a column for rows, a row for columns
+							int[] crossCells = BoardGeometry.UNIT_CELLS[9 - base + k];
+							for (int line = 0; line < 9; line++) {
+								if (line != first && line != second) {
+									progress |= eliminate(crossCells[line], bit);
+								}
+							}
+						}
+						if (progress) {
+							for (int k = 0; k < 9; k++) {
+								if ((lines[first] & 1 << k) != 0) {
+									addCell(BoardGeometry.UNIT_CELLS[base + first][k]);
+									addCell(BoardGeometry.UNIT_CELLS[base + second][k]);
+								}
+							}
+							technique = Technique.X_WING;
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A candidate of a cell with two candidates that, once placed, leads through a chain
+	 * of singles to a contradiction, so it can be eliminated.
+	 */
+	private boolean forcingChain() {
+		if (trial == null) {
+			trial = new HumanSolver();
+		}
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			int mask = candidates[index];
+			if (values[index] != 0 || Integer.bitCount(mask) != 2) {
+				continue;
+			}
+			for (int bit = Integer.lowestOneBit(mask); bit != 0; bit = Integer.lowestOneBit(mask & ~(bit | bit - 1))) {
+				trial.copyFrom(this);
+				trial.place(index, Integer.numberOfTrailingZeros(bit) + 1);
+				do {
+					trial.clearStep();
+				} while (!trial.broken && trial.empty > 0 && (trial.hiddenSingle() || trial.nakedSingle()));
+				if (trial.broken) {
+					eliminate(index, bit);
+					addCell(index);
+					technique = Technique.FORCING_CHAIN;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void copyFrom(HumanSolver other) {
+		System.arraycopy(other.values, 0, values, 0, BoardGeometry.CELLS);
+		System.arraycopy(other.candidates, 0, candidates, 0, BoardGeometry.CELLS);
+		empty = other.empty;
+		broken = other.broken;
+	}
+
+	private final byte[] values;
+	private final short[] candidates;
+	private int empty;
+	private boolean broken;
+	// the outcome of the last step
+	private Technique technique;
+	private final int[] cells;
+	private int cellCount;
+	private int placedIndex;
+	private final short[] eliminated;
+	private final int[] eliminatedCells;
+	private int eliminatedCount;
+	// scratch for the positions of values in a unit or in lines
+	private final int[] masks;
+	// the scratch solver forcing chains are followed in
+	private HumanSolver trial;
+}
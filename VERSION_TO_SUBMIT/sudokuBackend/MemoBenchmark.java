@@ -0,0 +1,51 @@
+package sudokuBackend;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the uniqueness checks each generated puzzle needs with and without the
+ * Zobrist-hashed memo of uniqueness results, for every difficulty that checks through
+ * it. Both runs generate from the same seeds; easy and medium give identical puzzles
+ * either way, while very hard gets further within its check budget when the memo
+ * answers some checks for free.
+ * Run with: java sudokuBackend.MemoBenchmark [puzzles per difficulty]
+ */
+public class MemoBenchmark {
+
+	public static void main(String[] args) {
+		int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Difficulty[] difficulties = {Difficulty.EASY, Difficulty.MEDIUM, Difficulty.VERY_HARD};
+
+		System.out.println("difficulty  memo  checks/puzzle  hit rate  mean clues  mean ms/puzzle");
+		for (Difficulty difficulty : difficulties) {
+			run(difficulty, puzzles, false);
+			run(difficulty, puzzles, true);
+		}
+	}
+
+	/**
+	 * Generates seeded puzzles of one difficulty and prints the averages.
+	 */
+	private static void run(Difficulty difficulty, int puzzles, boolean memo) {
+		long checks = 0;
+		long lookups = 0;
+		long hits = 0;
+		long clues = 0;
+		long start = System.nanoTime();
+		for (int seed = 0; seed < puzzles; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			CompletedBoard solution = new CompletedBoard(random.split());
+			SolvableBoard board = new SolvableBoard(solution, difficulty, random.split(),
+					GenerationBudget.forDifficulty(difficulty), memo ? new UniquenessMemo(4096) : null);
+			GenerationStats stats = board.getGenerationStats();
+			checks += stats.getChecks();
+			lookups += stats.getMemoLookups();
+			hits += stats.getMemoHits();
+			clues += stats.getClues();
+		}
+		double millis = (System.nanoTime() - start) / 1e6 / puzzles;
+		System.out.printf("%-10s  %-4s  %13.1f  %7.1f%%  %10.2f  %14.2f%n", difficulty,
+				memo ? "on" : "off", (double) checks / puzzles,
+				lookups == 0 ? 0 : 100.0 * hits / lookups, (double) clues / puzzles, millis);
+	}
+}
@@ -0,0 +1,268 @@
+package sudokuBackend;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only journal of the moves of the game in progress, kept next to a snapshot
+ * of the game (a SavedGame file) so the game survives a crash.
+ * Every move is one RECORD_SIZE byte record holding the resulting state of a cell, its
+ * pencil marks or the elapsed time, written straight to a FileChannel. Records state
+ * results rather than changes, so replaying a record twice is harmless. Writes reach
+ * the disk in batches: a background thread forces the journal every SYNC_MILLIS when
+ * records have been added, so a move costs one positional write. Compaction writes a
+ * fresh snapshot in the background and then drops the records it covers; a crash in
+ * between leaves a snapshot plus records that replay onto the same state. The game is
+ * rebuilt with recover.
+ */
+public class MoveJournal implements Closeable {
+
+	/**
+	 * Opens a journal, keeping any complete records already in it.
+	 * @param journalFile the journal file.
+	 * @param snapshotFile the file compaction writes snapshots to.
+	 * @throws IOException if the journal cannot be opened.
+	 */
+	public MoveJournal(File journalFile, File snapshotFile) throws IOException {
+		this.snapshotFile = snapshotFile;
+		channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		size = channel.size() / RECORD_SIZE * RECORD_SIZE;
+		record = ByteBuffer.allocateDirect(RECORD_SIZE);
+		executor = Executors.newSingleThreadScheduledExecutor(new GeneratorThreadFactory("journal"));
+		executor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				sync();
+			}
+		}, SYNC_MILLIS, SYNC_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records the value a cell now holds.
+	 * @param index the cell index (row * 9 + column).
+	 * @param value the value of the cell, 0 if it was cleared.
+	 * @throws IOException if the record cannot be written.
+	 */
+	public void recordValue(int index, int value) throws IOException {
+		append(VALUE << 24 | index << 16 | value);
+	}
+
+	/**
+	 * Records the pencil marks a cell now holds.
+	 * @param index the cell index (row * 9 + column).
+	 * @param marks the 9 bit pencil mark mask of the cell.
+	 * @throws IOException if the record cannot be written.
+	 */
+	public void recordMarks(int index, int marks) throws IOException {
+		append(MARKS << 24 | index << 16 | marks);
+	}
+
+	/**
+	 * Records the time played so far.
+	 * @param seconds the elapsed time in seconds, below 2^24.
+	 * @throws IOException if the record cannot be written.
+	 */
+	public void recordTime(int seconds) throws IOException {
+		append(TIME << 24 | Math.min(seconds, 0xFFFFFF));
+	}
+
+	/**
+	 * Returns the number of records since the last snapshot.
+	 * @return the record count.
+	 */
+	public synchronized long getRecords() {
+		return size / RECORD_SIZE;
+	}
+
+	/**
+	 * Starts the journal of a new game: the journal is emptied and the snapshot replaced
+	 * before this returns, so the records of the previous game can never be replayed onto
+	 * the new one. A compaction of the previous game still running is abandoned before it
+	 * writes its snapshot or drops any records.
+	 * @param snapshot the state of the new game.
+	 * @throws IOException if the journal or the snapshot cannot be written.
+	 */
+	public void reset(SavedGame snapshot) throws IOException {
+		synchronized (snapshotLock) {
+			synchronized (this) {
+				generation++;
+				channel.truncate(0);
+				channel.force(false);
+				size = 0;
+			}
+			snapshot.write(snapshotFile);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the game in the background, then drops the records written
+	 * before it was taken. Does nothing while an earlier compaction is still running.
+	 * @param snapshot the current state of the game.
+	 */
+	public synchronized void compact(final SavedGame snapshot) {
+		if (compacting) {
+			return;
+		}
+		compacting = true;
+		final long covered = size;
+		final int game = generation;
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					synchronized (snapshotLock) {
+						synchronized (MoveJournal.this) {
+							if (generation != game) {
+								return;
+							}
+						}
+						snapshot.write(snapshotFile);
+					}
+					dropRecords(covered, game);
+				} catch (IOException e) {
+					// the journal still holds every record, so nothing is lost
+				} finally {
+					synchronized (MoveJournal.this) {
+						compacting = false;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Forces every record to disk and closes the journal.
+	 */
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(SYNC_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			channel.force(false);
+			channel.close();
+		}
+	}
+
+	/**
+	 * Rebuilds the game from a snapshot and the journal written after it.
+	 * @param snapshotFile the snapshot.
+	 * @param journalFile the journal.
+	 * @return the game as of the last complete record.
+	 * @throws IOException if the snapshot cannot be read.
+	 */
+	public static SavedGame recover(File snapshotFile, File journalFile) throws IOException {
+		SavedGame snapshot = SavedGame.read(snapshotFile);
+		SolvableBoard board = snapshot.createBoard();
+		short[] marks = snapshot.getPencilMarks();
+		int seconds = snapshot.getElapsedSeconds();
+		if (journalFile.exists()) {
+			ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+			while (records.remaining() >= RECORD_SIZE) {
+				int entry = records.getInt();
+				int type = entry >>> 24;
+				int index = entry >>> 16 & 0xFF;
+				int payload = entry & 0xFFFF;
+				if (type == TIME) {
+					seconds = entry & 0xFFFFFF;
+				} else if (index >= BoardGeometry.CELLS
+						|| !board.isChangeable(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index])) {
+					break;
+				} else if (type == VALUE && payload <= 9) {
+					if (payload == 0) {
+						board.removeValue(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index]);
+					} else {
+						board.setCell(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index], payload);
+					}
+				} else if (type == MARKS) {
+					marks[index] = (short) (payload & BoardGeometry.ALL_VALUES);
+				} else {
+					// a torn or foreign record: everything after it is unreliable
+					break;
+				}
+			}
+		}
+		return new SavedGame(snapshot.createSolution(), board, marks, seconds, snapshot.getDifficulty());
+	}
+
+	private synchronized void append(int entry) throws IOException {
+		record.clear();
+		record.putInt(entry);
+		record.flip();
+		while (record.hasRemaining()) {
+			size += channel.write(record, size);
+		}
+		dirty = true;
+	}
+
+	/**
+	 * Forces the journal to disk if records were added since the last sync.
+	 */
+	private void sync() {
+		synchronized (this) {
+			if (!dirty || !channel.isOpen()) {
+				return;
+			}
+			dirty = false;
+		}
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			synchronized (this) {
+				dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * Drops the first covered bytes of records, which a snapshot now holds, moving any
+	 * records written since to the start of the journal. Does nothing if the journal was
+	 * reset for another game since the snapshot was taken.
+	 */
+	private synchronized void dropRecords(long covered, int game) throws IOException {
+		if (generation != game) {
+			return;
+		}
+		covered = Math.min(covered, size);
+		ByteBuffer tail = ByteBuffer.allocate((int) (size - covered));
+		while (tail.hasRemaining() && channel.read(tail, covered + tail.position()) >= 0) {
+		}
+		tail.flip();
+		long position = 0;
+		while (tail.hasRemaining()) {
+			position += channel.write(tail, position);
+		}
+		channel.truncate(position);
+		channel.force(false);
+		size = position;
+	}
+
+	// the interval at which appended records are forced to disk
+	public static final long SYNC_MILLIS = 1000;
+	public static final int RECORD_SIZE = 4;
+
+	private static final int VALUE = 1;
+	private static final int MARKS = 2;
+	private static final int TIME = 3;
+
+	private final File snapshotFile;
+	private final FileChannel channel;
+	private final ByteBuffer record;
+	private final ScheduledExecutorService executor;
+	private long size;
+	private boolean dirty;
+	private boolean compacting;
+	// counts resets, so a compaction can tell its game has been replaced
+	private int generation;
+	// held while the snapshot file is written; taken before the journal itself
+	private final Object snapshotLock = new Object();
+}
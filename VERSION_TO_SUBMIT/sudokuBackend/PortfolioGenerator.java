@@ -0,0 +1,167 @@
+package sudokuBackend;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a puzzle by racing several independent attempts and keeping the best.
+ * Every attempt is an ordinary seeded generation under the same budget, with its seed
+ * split from the portfolio seed, and runs on its own thread. Attempts still running at
+ * the shared deadline are interrupted; they stop removing clues and hand back the board
+ * they have, which is still unique. The puzzle with the highest Grade score wins, then
+ * the one with the fewest clues, ties going to the earliest attempt, so a portfolio that
+ * finishes before its deadline is deterministic. PuzzlePool refills very hard puzzles
+ * through a portfolio.
+ */
+public class PortfolioGenerator {
+
+	/**
+	 * Creates a portfolio running one attempt per available core, and at least two.
+	 */
+	public PortfolioGenerator() {
+		this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Creates a portfolio running the given number of attempts per puzzle.
+	 * @param attempts the number of attempts raced for every puzzle.
+	 */
+	public PortfolioGenerator(int attempts) {
+		if (attempts < 1) {
+			throw new IllegalArgumentException("A portfolio needs at least one attempt.");
+		}
+		this.attempts = attempts;
+		executor = Executors.newFixedThreadPool(attempts, new GeneratorThreadFactory("portfolio"));
+	}
+
+	/**
+	 * Races the attempts for a seed and difficulty and returns the hardest puzzle, by
+	 * Grade score and then by clue count.
+	 * @param seed the seed the attempt seeds are split from.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param budget the budget every attempt runs under.
+	 * @param deadlineMillis the time after which running attempts are stopped.
+	 * @return the best puzzle found.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 * @throws IllegalStateException if every attempt failed, caused by the first failure.
+	 */
+	public Puzzle generate(long seed, Difficulty difficulty, GenerationBudget budget,
+			long deadlineMillis) throws InterruptedException {
+		CountDownLatch finished = new CountDownLatch(attempts);
+		Attempt[] portfolio = new Attempt[attempts];
+		SplittableRandom seeds = new SplittableRandom(seed);
+		for (int i = 0; i < attempts; i++) {
+			portfolio[i] = new Attempt(seeds.split().nextLong(), difficulty, budget, finished);
+			executor.execute(portfolio[i]);
+		}
+
+		if (!finished.await(deadlineMillis, TimeUnit.MILLISECONDS)) {
+			for (Attempt attempt : portfolio) {
+				attempt.stop();
+			}
+			// stopped attempts return their current board almost immediately
+			finished.await();
+		}
+
+		Puzzle best = null;
+		int bestScore = 0;
+		RuntimeException failure = null;
+		for (Attempt attempt : portfolio) {
+			Puzzle puzzle = attempt.result;
+			if (puzzle == null) {
+				if (failure == null) {
+					failure = attempt.failure;
+				}
+				continue;
+			}
+			int score = Grade.of(puzzle.getBoard()).getScore();
+			if (best == null || score > bestScore
+					|| score == bestScore && clues(puzzle) < clues(best)) {
+				best = puzzle;
+				bestScore = score;
+			}
+		}
+		if (best == null) {
+			throw new IllegalStateException("Every attempt of the portfolio failed.", failure);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of attempts raced for every puzzle.
+	 * @return the portfolio size.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * Stops the threads of this portfolio.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the clue count of a generated puzzle.
+	 */
+	private static int clues(Puzzle puzzle) {
+		return puzzle.getBoard().getGenerationStats().getClues();
+	}
+
+	/**
+	 * One seeded generation of the portfolio. Stopping interrupts the generating thread
+	 * only while this attempt is running on it, so a late stop never leaks into a later task.
+	 */
+	private static class Attempt implements Runnable {
+
+		Attempt(long seed, Difficulty difficulty, GenerationBudget budget, CountDownLatch finished) {
+			this.seed = seed;
+			this.difficulty = difficulty;
+			this.budget = budget;
+			this.finished = finished;
+		}
+
+		public void run() {
+			synchronized (this) {
+				runner = Thread.currentThread();
+				if (stopped) {
+					runner.interrupt();
+				}
+			}
+			try {
+				result = Puzzle.generate(seed, difficulty, budget);
+			} catch (RuntimeException e) {
+				failure = e;
+			} finally {
+				synchronized (this) {
+					runner = null;
+					Thread.interrupted();
+				}
+				finished.countDown();
+			}
+		}
+
+		synchronized void stop() {
+			stopped = true;
+			if (runner != null) {
+				runner.interrupt();
+			}
+		}
+
+		private final long seed;
+		private final Difficulty difficulty;
+		private final GenerationBudget budget;
+		private final CountDownLatch finished;
+		private Thread runner;
+		private boolean stopped;
+		private volatile Puzzle result;
+		private volatile RuntimeException failure;
+	}
+
+	private final int attempts;
+	private final ExecutorService executor;
+}
@@ -0,0 +1,97 @@
+package sudokuBackend;
+
+import java.util.SplittableRandom;
+
+/**
+ * A generated puzzle: the board given to the player together with its solution and
+ * the seed it was generated from. Generation is deterministic, so the same seed and
+ * difficulty always produce the same puzzle on any machine.
+ */
+public class Puzzle {
+
+	/**
+	 * Constructs a puzzle from a solvable board and the completed board it was built from.
+	 * @param seed the seed the puzzle was generated from.
+	 * @param solution the completed board.
+	 * @param board the solvable board built from solution.
+	 * @param difficulty the difficulty board was generated for.
+	 */
+	public Puzzle(long seed, CompletedBoard solution, SolvableBoard board, Difficulty difficulty) {
+		this.seed = seed;
+		this.solution = solution;
+		this.board = board;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * Generates a new puzzle of the given difficulty from a random seed.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @return a new puzzle.
+	 */
+	public static Puzzle generate(Difficulty difficulty) {
+		return generate(new SplittableRandom().nextLong(), difficulty);
+	}
+
+	/**
+	 * Generates the puzzle identified by a seed and a difficulty. The completed board
+	 * and the clue removal each draw from their own split of the seed's generator.
+	 * @param seed the seed of the puzzle.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @return the puzzle for seed and difficulty.
+	 */
+	public static Puzzle generate(long seed, Difficulty difficulty) {
+		return generate(seed, difficulty, GenerationBudget.forDifficulty(difficulty));
+	}
+
+	/**
+	 * Generates the puzzle identified by a seed, a difficulty and a generation budget.
+	 * The work done is available from the board's generation statistics.
+	 * @param seed the seed of the puzzle.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param budget the limits on clue removal.
+	 * @return the puzzle for seed, difficulty and budget.
+	 */
+	public static Puzzle generate(long seed, Difficulty difficulty, GenerationBudget budget) {
+		SplittableRandom random = new SplittableRandom(seed);
+		CompletedBoard solution = new CompletedBoard(random.split());
+		SolvableBoard board = new SolvableBoard(solution, difficulty, random.split(), budget);
+		return new Puzzle(seed, solution, board, difficulty);
+	}
+
+	/**
+	 * Returns the seed this puzzle was generated from.
+	 * @return the seed of the puzzle.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the completed board this puzzle was built from.
+	 * @return the solution of the puzzle.
+	 */
+	public CompletedBoard getSolution() {
+		return solution;
+	}
+
+	/**
+	 * Returns the board given to the player.
+	 * @return the solvable board.
+	 */
+	public SolvableBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the difficulty this puzzle was generated for.
+	 * @return the difficulty of the puzzle.
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	private final long seed;
+	private final CompletedBoard solution;
+	private final SolvableBoard board;
+	private final Difficulty difficulty;
+}
@@ -0,0 +1,240 @@
+package sudokuBackend;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.SplittableRandom;
+
+/**
+ * A read-only view of a puzzle bank file, mapped into memory so that any puzzle can be
+ * fetched directly from its record.
+ * The file starts with a HEADER_SIZE byte header: a magic number, the format version,
+ * the record size and an index of extents, each a run of consecutive records of one
+ * difficulty. Every record is RECORD_SIZE bytes: the givens and the solution packed two
+ * cells per byte, then the grade, the clue count and the seed. Records are appended in
+ * bulk by PuzzleBankWriter.
+ */
+public class PuzzleBank {
+
+	/**
+	 * Opens and maps a puzzle bank file.
+	 * @param file the bank file.
+	 * @throws IOException if the file cannot be read or is not a puzzle bank.
+	 */
+	public PuzzleBank(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+		} finally {
+			in.close();
+		}
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+				|| buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+			throw new IOException("Not a puzzle bank.");
+		}
+
+		int extents = extentCount(buffer);
+		int levels = Difficulty.values().length;
+		starts = new int[levels][extents];
+		lengths = new int[levels][extents];
+		counts = new int[levels];
+		extentCounts = new int[levels];
+		long records = 0;
+		for (int extent = 0; extent < extents; extent++) {
+			int offset = EXTENTS_OFFSET + extent * EXTENT_SIZE;
+			int level = difficultyOf(buffer.getInt(offset)).ordinal();
+			int start = buffer.getInt(offset + 4);
+			int length = buffer.getInt(offset + 8);
+			starts[level][extentCounts[level]] = start;
+			lengths[level][extentCounts[level]++] = length;
+			counts[level] += length;
+			records = Math.max(records, (long) start + length);
+		}
+		if (HEADER_SIZE + records * RECORD_SIZE > buffer.capacity()) {
+			throw new IOException("Puzzle bank is truncated.");
+		}
+	}
+
+	/**
+	 * Returns the number of puzzles of a difficulty in the bank.
+	 * @param difficulty the difficulty to count.
+	 * @return the number of records of that difficulty.
+	 */
+	public int getCount(Difficulty difficulty) {
+		return counts[difficulty.ordinal()];
+	}
+
+	/**
+	 * Reads a puzzle from the bank.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param n the position of the puzzle among those of its difficulty.
+	 * @return the puzzle, with no generation statistics.
+	 * @throws IOException if the record is damaged: a solution value out of 1 - 9, a
+	 * solution that repeats a value in a unit, or a given that differs from the solution.
+	 */
+	public Puzzle get(Difficulty difficulty, int n) throws IOException {
+		int offset = recordOffset(difficulty, n);
+		byte[] givens = new byte[BoardGeometry.CELLS];
+		byte[] solution = new byte[BoardGeometry.CELLS];
+		unpack(offset + GIVENS_OFFSET, givens);
+		unpack(offset + SOLUTION_OFFSET, solution);
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (solution[index] < 1 || solution[index] > 9
+					|| givens[index] != 0 && givens[index] != solution[index]) {
+				throw new IOException("Puzzle " + n + " of difficulty " + difficulty + " is damaged.");
+			}
+		}
+		CompletedBoard completed = new CompletedBoard(solution);
+		if (completed.hasConflicts()) {
+			throw new IOException("Puzzle " + n + " of difficulty " + difficulty + " is damaged.");
+		}
+		return new Puzzle(buffer.getLong(offset + SEED_OFFSET), completed,
+				new SolvableBoard(givens, null), difficulty);
+	}
+
+	/**
+	 * Reads a random puzzle of a difficulty from the bank.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param random the source of randomness.
+	 * @return a puzzle, or null if the bank holds none of this difficulty.
+	 * @throws IOException if the record picked is damaged.
+	 */
+	public Puzzle random(Difficulty difficulty, SplittableRandom random) throws IOException {
+		int count = getCount(difficulty);
+		return count == 0 ? null : get(difficulty, random.nextInt(count));
+	}
+
+	/**
+	 * Returns the grade stored with a puzzle.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param n the position of the puzzle among those of its difficulty.
+	 * @return the Grade score of the puzzle, or UNGRADED for a record written without one.
+	 */
+	public int getGrade(Difficulty difficulty, int n) {
+		return buffer.getShort(recordOffset(difficulty, n) + GRADE_OFFSET);
+	}
+
+	/**
+	 * Returns the clue count stored with a puzzle.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @param n the position of the puzzle among those of its difficulty.
+	 * @return the number of givens.
+	 */
+	public int getClues(Difficulty difficulty, int n) {
+		return buffer.get(recordOffset(difficulty, n) + CLUES_OFFSET);
+	}
+
+	/**
+	 * Returns the byte offset of the n-th record of a difficulty.
+	 */
+	private int recordOffset(Difficulty difficulty, int n) {
+		int level = difficulty.ordinal();
+		if (n < 0 || n >= counts[level]) {
+			throw new IndexOutOfBoundsException("No puzzle " + n + " of difficulty " + difficulty + ".");
+		}
+		int extent = 0;
+		while (n >= lengths[level][extent]) {
+			n -= lengths[level][extent++];
+		}
+		return HEADER_SIZE + (starts[level][extent] + n) * RECORD_SIZE;
+	}
+
+	/**
+	 * Unpacks 81 cells stored two per byte, the first cell of a pair in the low nibble.
+	 */
+	private void unpack(int offset, byte[] values) {
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			int packed = buffer.get(offset + index / 2);
+			values[index] = (byte) ((index % 2 == 0 ? packed : packed >> 4) & 0x0F);
+		}
+	}
+
+	/**
+	 * Packs 81 cells two per byte into target at offset, the first cell of a pair in the
+	 * low nibble.
+	 * @param values the 81 cell values.
+	 * @param target the record being written.
+	 * @param offset the offset of the packed cells in target.
+	 */
+	static void pack(byte[] values, byte[] target, int offset) {
+		for (int index = 0; index < BoardGeometry.CELLS; index += 2) {
+			int high = index + 1 < BoardGeometry.CELLS ? values[index + 1] << 4 : 0;
+			target[offset + index / 2] = (byte) (values[index] | high);
+		}
+	}
+
+	/**
+	 * Unpacks 81 cells stored two per byte by pack.
+	 * @param source the packed cells.
+	 * @param offset the offset of the packed cells in source.
+	 * @param values receives the 81 cell values.
+	 */
+	static void unpack(byte[] source, int offset, byte[] values) {
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			int packed = source[offset + index / 2];
+			values[index] = (byte) ((index % 2 == 0 ? packed : packed >> 4) & 0x0F);
+		}
+	}
+
+	/**
+	 * Reads the number of extents from a bank header, checking it and the first record
+	 * and length of every extent, so a damaged header is rejected before it is used.
+	 * @param header the header, at least HEADER_SIZE bytes.
+	 * @return the number of extents.
+	 * @throws IOException if the count or an extent is out of range.
+	 */
+	static int extentCount(ByteBuffer header) throws IOException {
+		int extents = header.getInt(8);
+		if (extents < 0 || extents > MAX_EXTENTS) {
+			throw new IOException("Puzzle bank has " + extents + " extents.");
+		}
+		for (int extent = 0; extent < extents; extent++) {
+			int offset = EXTENTS_OFFSET + extent * EXTENT_SIZE;
+			if (header.getInt(offset + 4) < 0 || header.getInt(offset + 8) < 0) {
+				throw new IOException("Puzzle bank extent " + extent + " is out of range.");
+			}
+		}
+		return extents;
+	}
+
+	/**
+	 * Returns the difficulty stored in a file under its integer value.
+	 * @param value the value of the difficulty.
+	 * @return the difficulty.
+	 * @throws IOException if no difficulty has that value.
+	 */
+	static Difficulty difficultyOf(int value) throws IOException {
+		for (Difficulty difficulty : Difficulty.values()) {
+			if (difficulty.getValue() == value) {
+				return difficulty;
+			}
+		}
+		throw new IOException("Unknown difficulty " + value + ".");
+	}
+
+	public static final int UNGRADED = 0;
+
+	static final int MAGIC = 0x53444B42;
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 1024;
+	static final int EXTENTS_OFFSET = 16;
+	// difficulty value, first record and record count
+	static final int EXTENT_SIZE = 12;
+	static final int MAX_EXTENTS = (HEADER_SIZE - EXTENTS_OFFSET) / EXTENT_SIZE;
+	static final short RECORD_SIZE = 96;
+	static final int GIVENS_OFFSET = 0;
+	static final int SOLUTION_OFFSET = 41;
+	static final int GRADE_OFFSET = 82;
+	static final int CLUES_OFFSET = 84;
+	static final int SEED_OFFSET = 88;
+
+	private final MappedByteBuffer buffer;
+	// per difficulty ordinal, the first record and length of each of its extents
+	private final int[][] starts;
+	private final int[][] lengths;
+	private final int[] extentCounts;
+	private final int[] counts;
+}
@@ -0,0 +1,190 @@
+package sudokuBackend;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends puzzles to a puzzle bank file in bulk (see PuzzleBank for the format), with
+ * the Grade score of every puzzle as its grade. Each batch is written as one run of
+ * records of a single difficulty and then added to the index; a batch of the same
+ * difficulty as the previous one extends its extent. The records are forced to disk
+ * before the header that indexes them, so a bank that was interrupted while appending
+ * still opens with the batches completed before.
+ * Run with: java sudokuBackend.PuzzleBankWriter [file] [puzzles per difficulty]
+ */
+public class PuzzleBankWriter implements Closeable {
+
+	/**
+	 * Opens a bank file for appending, creating it if it is empty or does not exist.
+	 * @param file the bank file.
+	 * @throws IOException if the file cannot be opened or is not a puzzle bank.
+	 */
+	public PuzzleBankWriter(File file) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		channel = out.getChannel();
+		header = ByteBuffer.allocate(PuzzleBank.HEADER_SIZE);
+		try {
+			if (channel.size() == 0) {
+				header.putInt(0, PuzzleBank.MAGIC);
+				header.putShort(4, PuzzleBank.VERSION);
+				header.putShort(6, PuzzleBank.RECORD_SIZE);
+				writeHeader();
+			} else {
+				readHeader();
+				if (header.getInt(0) != PuzzleBank.MAGIC || header.getShort(4) != PuzzleBank.VERSION
+						|| header.getShort(6) != PuzzleBank.RECORD_SIZE) {
+					throw new IOException("Not a puzzle bank.");
+				}
+			}
+			int extents = PuzzleBank.extentCount(header);
+			for (int extent = 0; extent < extents; extent++) {
+				int offset = PuzzleBank.EXTENTS_OFFSET + extent * PuzzleBank.EXTENT_SIZE;
+				long end = (long) header.getInt(offset + 4) + header.getInt(offset + 8);
+				if (end > Integer.MAX_VALUE) {
+					throw new IOException("Puzzle bank extent " + extent + " is out of range.");
+				}
+				records = Math.max(records, (int) end);
+			}
+		} catch (IOException | RuntimeException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends a batch of puzzles of one difficulty.
+	 * @param difficulty the difficulty the puzzles are filed under.
+	 * @param puzzles the puzzles to append.
+	 * @throws IOException if the records cannot be written.
+	 */
+	public void append(Difficulty difficulty, List<Puzzle> puzzles) throws IOException {
+		if (puzzles.isEmpty()) {
+			return;
+		}
+		int extents = header.getInt(8);
+		int last = PuzzleBank.EXTENTS_OFFSET + (extents - 1) * PuzzleBank.EXTENT_SIZE;
+		boolean extend = extents > 0 && header.getInt(last) == difficulty.getValue();
+		if (!extend && extents == PuzzleBank.MAX_EXTENTS) {
+			throw new IllegalStateException("Puzzle bank index is full.");
+		}
+
+		byte[] batch = new byte[puzzles.size() * PuzzleBank.RECORD_SIZE];
+		ByteBuffer view = ByteBuffer.wrap(batch);
+		for (int k = 0; k < puzzles.size(); k++) {
+			Puzzle puzzle = puzzles.get(k);
+			byte[] givens = puzzle.getBoard().copyValues();
+			int offset = k * PuzzleBank.RECORD_SIZE;
+			PuzzleBank.pack(givens, batch, offset + PuzzleBank.GIVENS_OFFSET);
+			PuzzleBank.pack(puzzle.getSolution().copyValues(), batch, offset + PuzzleBank.SOLUTION_OFFSET);
+			int score = Grade.of(givens).getScore();
+			view.putShort(offset + PuzzleBank.GRADE_OFFSET, (short) Math.min(score, Short.MAX_VALUE));
+			view.put(offset + PuzzleBank.CLUES_OFFSET, (byte) clues(givens));
+			view.putLong(offset + PuzzleBank.SEED_OFFSET, puzzle.getSeed());
+		}
+		long position = PuzzleBank.HEADER_SIZE + (long) records * PuzzleBank.RECORD_SIZE;
+		while (view.hasRemaining()) {
+			position += channel.write(view, position);
+		}
+		channel.force(false);
+
+		if (extend) {
+			header.putInt(last + 8, header.getInt(last + 8) + puzzles.size());
+		} else {
+			int offset = PuzzleBank.EXTENTS_OFFSET + extents * PuzzleBank.EXTENT_SIZE;
+			header.putInt(offset, difficulty.getValue());
+			header.putInt(offset + 4, records);
+			header.putInt(offset + 8, puzzles.size());
+			header.putInt(8, extents + 1);
+		}
+		records += puzzles.size();
+		writeHeader();
+	}
+
+	/**
+	 * Returns the number of records in the bank.
+	 * @return the record count over all difficulties.
+	 */
+	public int getRecords() {
+		return records;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Generates a bank of distinct puzzles, batch by batch, for every difficulty.
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : "PuzzleBank.dat");
+		int perDifficulty = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		DuplicateFilter filter = new DuplicateFilter();
+		PuzzleBankWriter writer = new PuzzleBankWriter(file);
+		try {
+			for (Difficulty difficulty : Difficulty.values()) {
+				List<Puzzle> batch = new ArrayList<Puzzle>(BATCH_SIZE);
+				int written = 0;
+				while (written < perDifficulty) {
+					Puzzle puzzle = Puzzle.generate(difficulty);
+					if (filter.offer(puzzle)) {
+						batch.add(puzzle);
+					}
+					if (batch.size() == BATCH_SIZE || written + batch.size() == perDifficulty) {
+						writer.append(difficulty, batch);
+						written += batch.size();
+						batch.clear();
+					}
+				}
+				System.out.println(difficulty + ": " + written + " puzzles");
+			}
+			System.out.println(writer.getRecords() + " records, " + filter.getDuplicates()
+					+ " duplicates dropped");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the number of givens of a board.
+	 */
+	private static int clues(byte[] values) {
+		int clues = 0;
+		for (byte value : values) {
+			if (value != 0) {
+				clues++;
+			}
+		}
+		return clues;
+	}
+
+	private void readHeader() throws IOException {
+		header.clear();
+		long position = 0;
+		while (header.hasRemaining() && channel.read(header, position) >= 0) {
+			position = header.position();
+		}
+		header.clear();
+	}
+
+	private void writeHeader() throws IOException {
+		header.clear();
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += channel.write(header, position);
+		}
+		header.clear();
+		channel.force(false);
+	}
+
+	private static final int BATCH_SIZE = 1000;
+
+	private final FileChannel channel;
+	private final ByteBuffer header;
+	private int records;
+}
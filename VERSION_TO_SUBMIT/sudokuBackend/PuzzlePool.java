@@ -0,0 +1,244 @@
+package sudokuBackend;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded queue of pre-generated puzzles for every difficulty, filled by a
+ * background executor sized to the available cores. Taking a puzzle never waits for
+ * the generator. The first SEED_SET_SIZE puzzles generated for a difficulty are also
+ * kept as seeds; if the queue is empty, a random symmetry transform of a seed is handed
+ * out instead, which takes microseconds and keeps the seed's difficulty. Only when no
+ * seed exists yet is the puzzle generated on the calling thread. Every take schedules
+ * a refill, so the queue is topped back up in the background. Very hard puzzles come
+ * from a PortfolioGenerator, which races several attempts and keeps the hardest.
+ */
+public class PuzzlePool {
+
+	/**
+	 * Creates a pool holding up to depth puzzles per difficulty and starts filling it.
+	 * @param depth the number of puzzles to keep ready for each difficulty.
+	 */
+	public PuzzlePool(int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Depth must be at least 1.");
+		}
+		this.depth = depth;
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				new GeneratorThreadFactory("puzzle-generator"));
+		portfolio = new PortfolioGenerator();
+		seedSource = new AtomicLong(new SplittableRandom().nextLong());
+		queues = new EnumMap<Difficulty, BlockingQueue<Puzzle>>(Difficulty.class);
+		pending = new EnumMap<Difficulty, AtomicInteger>(Difficulty.class);
+		seeds = new EnumMap<Difficulty, List<Puzzle>>(Difficulty.class);
+		fallbacks = new EnumMap<Difficulty, AtomicInteger>(Difficulty.class);
+		transformed = new EnumMap<Difficulty, AtomicInteger>(Difficulty.class);
+		refills = new EnumMap<Difficulty, AtomicInteger>(Difficulty.class);
+		refillNanos = new EnumMap<Difficulty, AtomicLong>(Difficulty.class);
+		lastRefillNanos = new EnumMap<Difficulty, AtomicLong>(Difficulty.class);
+		for (Difficulty difficulty : Difficulty.values()) {
+			queues.put(difficulty, new ArrayBlockingQueue<Puzzle>(depth));
+			pending.put(difficulty, new AtomicInteger());
+			seeds.put(difficulty, new ArrayList<Puzzle>(SEED_SET_SIZE));
+			fallbacks.put(difficulty, new AtomicInteger());
+			transformed.put(difficulty, new AtomicInteger());
+			refills.put(difficulty, new AtomicInteger());
+			refillNanos.put(difficulty, new AtomicLong());
+			lastRefillNanos.put(difficulty, new AtomicLong());
+		}
+		for (Difficulty difficulty : Difficulty.values()) {
+			refill(difficulty);
+		}
+	}
+
+	/**
+	 * Takes a puzzle of the given difficulty and schedules a refill. If none is ready, a
+	 * seed puzzle is transformed, or failing that one is generated on the calling thread.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @return a puzzle of the given difficulty.
+	 */
+	public Puzzle take(Difficulty difficulty) {
+		Puzzle puzzle = queues.get(difficulty).poll();
+		if (puzzle == null) {
+			puzzle = transformSeed(difficulty);
+			if (puzzle != null) {
+				transformed.get(difficulty).incrementAndGet();
+			} else {
+				fallbacks.get(difficulty).incrementAndGet();
+				puzzle = generate(difficulty);
+			}
+		}
+		refill(difficulty);
+		return puzzle;
+	}
+
+	/**
+	 * Returns an equivalent of a random seed puzzle of the given difficulty, under a
+	 * random symmetry transform.
+	 * @param difficulty the difficulty of the puzzle.
+	 * @return a transformed seed, or null if no puzzle of this difficulty has been
+	 * generated yet.
+	 */
+	public Puzzle transformSeed(Difficulty difficulty) {
+		SplittableRandom random = new SplittableRandom();
+		Puzzle seed;
+		List<Puzzle> seedSet = seeds.get(difficulty);
+		synchronized (seedSet) {
+			if (seedSet.isEmpty()) {
+				return null;
+			}
+			seed = seedSet.get(random.nextInt(seedSet.size()));
+		}
+		return SymmetryTransform.random(random).apply(seed);
+	}
+
+	/**
+	 * Returns the number of puzzles ready to be taken for the given difficulty.
+	 * @param difficulty the difficulty to inspect.
+	 * @return the current queue depth.
+	 */
+	public int getQueueDepth(Difficulty difficulty) {
+		return queues.get(difficulty).size();
+	}
+
+	/**
+	 * Returns the number of takes for the given difficulty that found the queue empty
+	 * and generated synchronously.
+	 * @param difficulty the difficulty to inspect.
+	 * @return the number of synchronous fallbacks.
+	 */
+	public int getFallbackCount(Difficulty difficulty) {
+		return fallbacks.get(difficulty).get();
+	}
+
+	/**
+	 * Returns the number of takes for the given difficulty that found the queue empty
+	 * and were served a transformed seed.
+	 * @param difficulty the difficulty to inspect.
+	 * @return the number of transformed seeds handed out.
+	 */
+	public int getTransformedCount(Difficulty difficulty) {
+		return transformed.get(difficulty).get();
+	}
+
+	/**
+	 * Returns the time between scheduling the most recent refill of the given
+	 * difficulty and its puzzle being queued.
+	 * @param difficulty the difficulty to inspect.
+	 * @return the latency of the last completed refill in milliseconds, 0 if none.
+	 */
+	public double getLastRefillMillis(Difficulty difficulty) {
+		return lastRefillNanos.get(difficulty).get() / 1e6;
+	}
+
+	/**
+	 * Returns the mean refill latency for the given difficulty.
+	 * @param difficulty the difficulty to inspect.
+	 * @return the mean latency of completed refills in milliseconds, 0 if none.
+	 */
+	public double getAverageRefillMillis(Difficulty difficulty) {
+		int count = refills.get(difficulty).get();
+		return count == 0 ? 0 : refillNanos.get(difficulty).get() / 1e6 / count;
+	}
+
+	/**
+	 * Stops the background generator. Puzzles already queued can still be taken.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		portfolio.shutdown();
+	}
+
+	/**
+	 * Generates a puzzle, either in the background or as the synchronous fallback, and
+	 * keeps it as a seed while the seed set of its difficulty is not yet full.
+	 */
+	private Puzzle generate(Difficulty difficulty) {
+		Puzzle puzzle = null;
+		if (difficulty == Difficulty.VERY_HARD) {
+			try {
+				puzzle = portfolio.generate(seedSource.getAndIncrement(), difficulty,
+						GenerationBudget.forDifficulty(difficulty), PORTFOLIO_DEADLINE_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RejectedExecutionException e) {
+				// the pool is shutting down
+			}
+		}
+		if (puzzle == null) {
+			puzzle = Puzzle.generate(difficulty);
+		}
+		List<Puzzle> seedSet = seeds.get(difficulty);
+		synchronized (seedSet) {
+			if (seedSet.size() < SEED_SET_SIZE) {
+				seedSet.add(puzzle);
+			}
+		}
+		return puzzle;
+	}
+
+	/**
+	 * Schedules enough background generations to bring the queue of the given
+	 * difficulty back to full depth.
+	 */
+	private void refill(final Difficulty difficulty) {
+		final BlockingQueue<Puzzle> queue = queues.get(difficulty);
+		final AtomicInteger inFlight = pending.get(difficulty);
+		while (!executor.isShutdown()) {
+			int scheduled = inFlight.get();
+			if (queue.size() + scheduled >= depth) {
+				return;
+			}
+			if (inFlight.compareAndSet(scheduled, scheduled + 1)) {
+				final long requested = System.nanoTime();
+				try {
+					executor.execute(new Runnable() {
+						public void run() {
+							try {
+								if (queue.offer(generate(difficulty))) {
+									long latency = System.nanoTime() - requested;
+									lastRefillNanos.get(difficulty).set(latency);
+									refillNanos.get(difficulty).addAndGet(latency);
+									refills.get(difficulty).incrementAndGet();
+								}
+							} finally {
+								inFlight.decrementAndGet();
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					inFlight.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	public static final int DEFAULT_DEPTH = 3;
+	public static final int SEED_SET_SIZE = 8;
+	// the time a very hard refill waits for its portfolio before taking the best so far
+	public static final long PORTFOLIO_DEADLINE_MILLIS = 1000;
+
+	private final int depth;
+	private final ExecutorService executor;
+	private final PortfolioGenerator portfolio;
+	private final AtomicLong seedSource;
+	private final Map<Difficulty, BlockingQueue<Puzzle>> queues;
+	private final Map<Difficulty, AtomicInteger> pending;
+	private final Map<Difficulty, List<Puzzle>> seeds;
+	private final Map<Difficulty, AtomicInteger> fallbacks;
+	private final Map<Difficulty, AtomicInteger> transformed;
+	private final Map<Difficulty, AtomicInteger> refills;
+	private final Map<Difficulty, AtomicLong> refillNanos;
+	private final Map<Difficulty, AtomicLong> lastRefillNanos;
+}
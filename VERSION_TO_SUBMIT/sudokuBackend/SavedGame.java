@@ -0,0 +1,267 @@
+package sudokuBackend;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The state of a game in progress, stored in a compact versioned binary file.
+ * The file holds a magic number, the format version, the difficulty and the elapsed
+ * time, then the solution and the current values packed two cells per byte, an 81 bit
+ * mask of the givens, the pencil marks of every marked cell and a CRC32 of all that
+ * precedes it; a game without pencil marks takes 108 bytes. Files are written to a
+ * temporary file, forced to disk and renamed over the previous save, so a crash leaves
+ * either the old or the new save, and a damaged file is rejected by its checksum.
+ * Saves made by earlier versions, which serialized the boards, the time and the
+ * difficulty to two files, can be read with readLegacy.
+ */
+public class SavedGame {
+
+	/**
+	 * Captures the state of a game.
+	 * @param solution the solution of the puzzle.
+	 * @param board the board being played; its unchangeable cells are the givens.
+	 * @param pencilMarks the 9 bit pencil mark mask of every cell, or null for none.
+	 * @param elapsedSeconds the time played so far.
+	 * @param difficulty the difficulty of the puzzle.
+	 */
+	public SavedGame(CompletedBoard solution, SolvableBoard board, short[] pencilMarks,
+			int elapsedSeconds, Difficulty difficulty) {
+		this.solution = solution.copyValues();
+		this.values = board.copyValues();
+		this.givens = new boolean[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			givens[index] = !board.isChangeable(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index]);
+		}
+		this.pencilMarks = pencilMarks == null ? new short[BoardGeometry.CELLS] : pencilMarks.clone();
+		this.elapsedSeconds = elapsedSeconds;
+		this.difficulty = difficulty;
+	}
+
+	private SavedGame(byte[] solution, byte[] values, boolean[] givens, short[] pencilMarks,
+			int elapsedSeconds, Difficulty difficulty) {
+		this.solution = solution;
+		this.values = values;
+		this.givens = givens;
+		this.pencilMarks = pencilMarks;
+		this.elapsedSeconds = elapsedSeconds;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * Writes this game to a file atomically, replacing any previous save.
+	 * @param file the save file.
+	 * @throws IOException if the save cannot be written; the previous save is kept.
+	 */
+	public void write(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put((byte) difficulty.getValue());
+		buffer.putInt(elapsedSeconds);
+		byte[] packed = new byte[PACKED_SIZE];
+		PuzzleBank.pack(solution, packed, 0);
+		buffer.put(packed);
+		PuzzleBank.pack(values, packed, 0);
+		buffer.put(packed);
+		byte[] givenMask = new byte[MASK_SIZE];
+		int marked = 0;
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (givens[index]) {
+				givenMask[index / 8] |= 1 << index % 8;
+			}
+			if (pencilMarks[index] != 0) {
+				marked++;
+			}
+		}
+		buffer.put(givenMask);
+		buffer.put((byte) marked);
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (pencilMarks[index] != 0) {
+				buffer.put((byte) index);
+				buffer.putShort(pencilMarks[index]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		buffer.flip();
+
+		Path target = file.toPath();
+		Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a game saved by write.
+	 * @param file the save file.
+	 * @return the saved game.
+	 * @throws IOException if the file cannot be read, is not a save or is damaged.
+	 */
+	public static SavedGame read(File file) throws IOException {
+		byte[] data = Files.readAllBytes(file.toPath());
+		if (data.length < MIN_SIZE || data.length > MAX_SIZE) {
+			throw new IOException("Not a saved game.");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length - 4);
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		if (buffer.getInt(data.length - 4) != (int) crc.getValue()) {
+			throw new IOException("Saved game is damaged.");
+		}
+		if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+			throw new IOException("Not a saved game.");
+		}
+		Difficulty difficulty = PuzzleBank.difficultyOf(buffer.get());
+		int elapsedSeconds = buffer.getInt();
+		byte[] packed = new byte[PACKED_SIZE];
+		byte[] solution = new byte[BoardGeometry.CELLS];
+		byte[] values = new byte[BoardGeometry.CELLS];
+		buffer.get(packed);
+		PuzzleBank.unpack(packed, 0, solution);
+		buffer.get(packed);
+		PuzzleBank.unpack(packed, 0, values);
+		byte[] givenMask = new byte[MASK_SIZE];
+		buffer.get(givenMask);
+		boolean[] givens = new boolean[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			givens[index] = (givenMask[index / 8] & 1 << index % 8) != 0;
+		}
+		short[] pencilMarks = new short[BoardGeometry.CELLS];
+		int marked = buffer.get();
+		if (marked < 0 || marked > BoardGeometry.CELLS || data.length != MIN_SIZE + marked * 3) {
+			throw new IOException("Saved game is damaged.");
+		}
+		for (int k = 0; k < marked; k++) {
+			int index = buffer.get();
+			if (index < 0 || index >= BoardGeometry.CELLS) {
+				throw new IOException("Saved game is damaged.");
+			}
+			pencilMarks[index] = (short) (buffer.getShort() & BoardGeometry.ALL_VALUES);
+		}
+		return new SavedGame(solution, values, givens, pencilMarks, elapsedSeconds, difficulty);
+	}
+
+	/**
+	 * Reads a game saved by earlier versions: the completed and solvable boards
+	 * serialized to one file, and the time and difficulty to another.
+	 * @param gameFile the file holding the two boards.
+	 * @param infoFile the file holding the time and difficulty.
+	 * @return the saved game, without pencil marks.
+	 * @throws IOException if either file cannot be read.
+	 */
+	public static SavedGame readLegacy(File gameFile, File infoFile) throws IOException {
+		try {
+			ObjectInputStream game = new ObjectInputStream(new FileInputStream(gameFile));
+			CompletedBoard solution;
+			SolvableBoard board;
+			try {
+				solution = (CompletedBoard) game.readObject();
+				board = (SolvableBoard) game.readObject();
+			} finally {
+				game.close();
+			}
+			ObjectInputStream info = new ObjectInputStream(new FileInputStream(infoFile));
+			int elapsedSeconds;
+			Difficulty difficulty;
+			try {
+				elapsedSeconds = (Integer) info.readObject();
+				difficulty = (Difficulty) info.readObject();
+			} finally {
+				info.close();
+			}
+			return new SavedGame(solution, board, null, elapsedSeconds, difficulty);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Saved game holds an unknown class.", e);
+		} catch (ClassCastException e) {
+			throw new IOException("Not a saved game.", e);
+		}
+	}
+
+	/**
+	 * Rebuilds the solution of the saved game.
+	 * @return a new completed board.
+	 */
+	public CompletedBoard createSolution() {
+		return new CompletedBoard(solution);
+	}
+
+	/**
+	 * Rebuilds the board of the saved game, with its givens unchangeable and the values
+	 * entered by the player filled in.
+	 * @return a new solvable board.
+	 */
+	public SolvableBoard createBoard() {
+		byte[] givenValues = new byte[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (givens[index]) {
+				givenValues[index] = values[index];
+			}
+		}
+		SolvableBoard board = new SolvableBoard(givenValues, null);
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			if (!givens[index] && values[index] != 0) {
+				board.setCell(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index], values[index]);
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Returns the pencil marks of the saved game.
+	 * @return a copy of the 9 bit pencil mark mask of every cell.
+	 */
+	public short[] getPencilMarks() {
+		return pencilMarks.clone();
+	}
+
+	/**
+	 * Returns the time played before the game was saved.
+	 * @return the elapsed time in seconds.
+	 */
+	public int getElapsedSeconds() {
+		return elapsedSeconds;
+	}
+
+	/**
+	 * Returns the difficulty of the saved game.
+	 * @return the difficulty.
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	private static final int MAGIC = 0x53444B47;
+	private static final byte VERSION = 1;
+	private static final int PACKED_SIZE = (BoardGeometry.CELLS + 1) / 2;
+	private static final int MASK_SIZE = (BoardGeometry.CELLS + 7) / 8;
+	// header, two packed boards, the given mask, the mark count and the checksum
+	private static final int MIN_SIZE = 10 + 2 * PACKED_SIZE + MASK_SIZE + 1 + 4;
+	private static final int MAX_SIZE = MIN_SIZE + BoardGeometry.CELLS * 3;
+
+	private final byte[] solution;
+	private final byte[] values;
+	private final boolean[] givens;
+	private final short[] pencilMarks;
+	private final int elapsedSeconds;
+	private final Difficulty difficulty;
+}
@@ -0,0 +1,18 @@
+package sudokuBackend;
+
+/**
+ * An interface for engines that count the solutions of a partially filled board.
+ * Implementations keep no state between calls and never modify the given values, so
+ * one instance can be shared by any number of boards and threads.
+ */
+public interface SolutionCounter {
+
+	/**
+	 * Counts the solutions of a board, stopping once limit solutions have been found.
+	 * The search runs on a private scratch copy of values.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 * @param limit the number of solutions after which the search stops.
+	 * @return the number of solutions found, at most limit, and the work done.
+	 */
+    SolverResult countSolutions(byte[] values, int limit);
+}
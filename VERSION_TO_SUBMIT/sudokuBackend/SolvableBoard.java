@@ -1,6 +1,11 @@
 package sudokuBackend;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class is an implementation of the Board interface that extends basic functionality found
@@ -15,12 +20,55 @@ public class SolvableBoard extends AbstractBoard implements Board{
 	 * @param difficulty a difficulty of either {easy, medium, hard, very hard}
 	 */
 	public SolvableBoard(CompletedBoard completeBoard, Difficulty difficulty) {
+		this(completeBoard, difficulty, new SplittableRandom());
+	}
+	
+	/**
+	 * A constructor to generate a solvable board given a completed board, a difficulty and
+	 * the generator every random removal is drawn from; the same completed board and
+	 * generator state always produce the same board
+	 * @param completeBoard a 9x9 sudoku board completely filled in 
+	 * @param difficulty a difficulty of either {easy, medium, hard, very hard}
+	 * @param numGenerator the source of randomness for clue removal
+	 */
+	public SolvableBoard(CompletedBoard completeBoard, Difficulty difficulty,
+			SplittableRandom numGenerator) {
+		this(completeBoard, difficulty, numGenerator, GenerationBudget.forDifficulty(difficulty));
+	}
+	
+	/**
+	 * A constructor to generate a solvable board given a completed board, a difficulty, the
+	 * generator every random removal is drawn from and a budget limiting the work spent on
+	 * clue removal; statistics about the work done are available from getGenerationStats
+	 * @param completeBoard a 9x9 sudoku board completely filled in 
+	 * @param difficulty a difficulty of either {easy, medium, hard, very hard}
+	 * @param numGenerator the source of randomness for clue removal
+	 * @param budget the limits on clue removal
+	 */
+	public SolvableBoard(CompletedBoard completeBoard, Difficulty difficulty,
+			SplittableRandom numGenerator, GenerationBudget budget) {
+		this(completeBoard, difficulty, numGenerator, budget, new UniquenessMemo(MEMO_CAPACITY));
+	}
+	
+	/**
+	 * A constructor that also chooses the memo of uniqueness results consulted before the 
+	 * solver; a null memo runs the solver for every check, which lets benchmarks compare the two
+	 * @param completeBoard a 9x9 sudoku board completely filled in 
+	 * @param difficulty a difficulty of either {easy, medium, hard, very hard}
+	 * @param numGenerator the source of randomness for clue removal
+	 * @param budget the limits on clue removal
+	 * @param memo the memo of uniqueness results, or null
+	 */
+	SolvableBoard(CompletedBoard completeBoard, Difficulty difficulty,
+			SplittableRandom numGenerator, GenerationBudget budget, UniquenessMemo memo) {
     	super();
+    	this.numGenerator = numGenerator;
+    	this.budget = budget;
+    	this.memo = memo;
+    	long start = System.nanoTime();
     	
-    	if (difficulty == Difficulty.EASY) {
-    		createArbitraryDifficult(completeBoard, Difficulty.EASY);
-    	} else if (difficulty == Difficulty.MEDIUM) {
-    		createArbitraryDifficult(completeBoard, Difficulty.MEDIUM);
+    	if (difficulty == Difficulty.EASY || difficulty == Difficulty.MEDIUM) {
+    		createArbitraryDifficult(completeBoard);
     	} else if (difficulty == Difficulty.HARD) {
     		createHardDifficulty(completeBoard);
     	} else if (difficulty == Difficulty.VERY_HARD) {
@@ -30,6 +78,36 @@ public class SolvableBoard extends AbstractBoard implements Board{
     	}
     	
     	setGivensUnchangeable();
+    	stats = new GenerationStats(checks, nodes, filledCount(), System.nanoTime() - start,
+    			budgetExhausted(), memo == null ? 0 : memo.getLookups(),
+    			memo == null ? 0 : memo.getHits());
+    	// the memo is only of use while clues are being removed
+    	memo = null;
+    }
+    
+    /**
+     * A constructor for a solvable board holding known givens, such as a transformed copy of 
+     * another solvable board; the givens are set unchangeable
+     * @param givens the 81 cell values in row-major order, 0 for an empty cell
+     * @param stats the statistics of the generation the givens came from, or null
+     */
+    SolvableBoard(byte[] givens, GenerationStats stats) {
+    	super();
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		if (givens[index] != 0) {
+    			setCell(BoardGeometry.ROW[index], BoardGeometry.COLUMN[index], givens[index]);
+    		}
+    	}
+    	setGivensUnchangeable();
+    	this.stats = stats;
+    }
+    
+    /**
+     * Returns statistics about the work done to generate this board.
+     * @return the generation statistics, or null for a board that was loaded from a file.
+     */
+    public GenerationStats getGenerationStats() {
+    	return stats;
     }
     
     @Override
@@ -72,17 +150,44 @@ public class SolvableBoard extends AbstractBoard implements Board{
     	return super.isChangeable(row, column);
     }
     
+    @Override
+    public int candidates(int row, int column) {
+    	return super.candidates(row, column);
+    }
+    
+    @Override
+    public long conflictMask(int word) {
+    	return super.conflictMask(word);
+    }
+    
+    @Override
+    public boolean isConflicting(int row, int column) {
+    	return super.isConflicting(row, column);
+    }
+    
+    @Override
+    public BoardSnapshot snapshot() {
+    	return super.snapshot();
+    }
+    
+    @Override
+    public void restore(BoardSnapshot snapshot) {
+    	super.restore(snapshot);
+    }
+    
 
     /**
      * creates a hard difficulty sudoku board; it removes some cells randomly at first after which 
-     * it tries to remove every cell in order while preserving unique solutions; is also governed 
-     * by execution time however it has it's own backtracking algorithm to check for unique 
-     * solutions that improves performance with this removal method
+     * it tries to remove every cell in order while preserving unique solutions; stops early if 
+     * the budget is exhausted or its target clue count is reached. Since the solution is known, 
+     * removing a clue keeps the board unique exactly when no solution puts a different digit in 
+     * that cell, which is answered by at most 8 targeted searches run concurrently (see 
+     * isNecessary). Every alternative solution found is kept as a witness and rules out later 
+     * removals without any search
      * @param completeBoard a completed to board that this method can use to build it's solvable 
      * board
      */
     private void createHardDifficulty(CompletedBoard completeBoard) {
-    	Random numGenerator = new Random();
     	int operations = 0;
     	int i = 0;
     	int j = 0;
@@ -95,34 +200,35 @@ public class SolvableBoard extends AbstractBoard implements Board{
     		i++;
     	}
     	
+    	byte[] solution = copyValues();
+    	List<long[]> witnesses = new ArrayList<long[]>();
+    	boolean[] necessary = new boolean[BoardGeometry.CELLS];
+    	int removable = BoardGeometry.CELLS;
     	int randomRow;
     	int randomCol;
-    	while (operations < 30) {
+    	while (operations < 30 && removable > 0 && !generationDone()) {
     		randomRow = numGenerator.nextInt(9);
     		randomCol = numGenerator.nextInt(9);
-	    	if (!cellIsEmpty(randomRow, randomCol)) {
-	    		int val = getCell(randomRow, randomCol);
-	    		removeValue(randomRow, randomCol);
-	    		if (checkHardSoln()){
-		    		operations++;
-		    	} else {
-		    		setCell(randomRow, randomCol, val);
-		    	}
+    		int index = BoardGeometry.indexOf(randomRow, randomCol);
+	    	if (!cellIsEmpty(randomRow, randomCol) && !necessary[index]) {
+	    		removable--;
+	    		if (isNecessary(index, solution, witnesses)) {
+	    			necessary[index] = true;
+	    		} else {
+	    			removeValue(randomRow, randomCol);
+	    			operations++;
+	    		}
 	    	}
     	}
 
     	i = 0;
     	j = 0;
-    	long start = System.currentTimeMillis();
-    	long end = start + 1000; // 1000 ms
-    	while (i <= Board.MAX_ROW && System.currentTimeMillis() < end) {
-    		while (j <= Board.MAX_COLUMN && System.currentTimeMillis() < end) {
-    			if (!cellIsEmpty(i, j)) {
-					int val = getCell(i, j);
-					removeValue(i, j);
-					if (!checkHardSoln()){
-			    		setCell(i, j, val);
-			    	}
+    	while (i <= Board.MAX_ROW && !generationDone()) {
+    		while (j <= Board.MAX_COLUMN && !generationDone()) {
+    			int index = BoardGeometry.indexOf(i, j);
+    			if (!cellIsEmpty(i, j) && !necessary[index]
+    					&& !isNecessary(index, solution, witnesses)) {
+    				removeValue(i, j);
     			}
     			j++;
     		}
@@ -132,13 +238,109 @@ public class SolvableBoard extends AbstractBoard implements Board{
     }
     
     /**
-     * a method to create very hard sudoku boards; governed by it's execution time it attempts to 
-     * randomly remove as many cells as it can within it's time limit
+     * checks whether a clue is needed to keep the board unique. Every solution of the board 
+     * without the clue either matches the known solution or has a different digit in that cell, 
+     * so the clue is needed exactly when one of the other digits that fit the remaining clues 
+     * leads to a solution. Those searches are independent and run concurrently on the 
+     * ForkJoinPool the board is generated from, or the common pool. A witness, stored as the 
+     * mask of cells where an alternative solution differs from the known one, settles the 
+     * question without searching once the cell is the only clue left in its mask: removing the 
+     * cell would let the alternative solution through
+     * @param index the cell holding the clue
+     * @param solution the known solution of the board
+     * @param witnesses the difference masks of the alternative solutions found so far; any 
+     * found by this check are added
+     * @return true if removing the clue would allow a second solution
+     */
+    private boolean isNecessary(int index, byte[] solution, List<long[]> witnesses) {
+    	long[] givens = givenMask();
+    	for (long[] witness : witnesses) {
+    		if ((witness[0] & givens[0]) == maskLow(index) && (witness[1] & givens[1]) == maskHigh(index)) {
+    			return true;
+    		}
+    	}
+    	
+    	int row = BoardGeometry.ROW[index];
+    	int column = BoardGeometry.COLUMN[index];
+    	int value = valueAt(index);
+    	removeValue(row, column);
+    	int alternatives = candidates(row, column) & ~BoardGeometry.bitOf(value);
+    	byte[] values = copyValues();
+    	setCell(row, column, value);
+    	
+    	List<RemovalCheck> searches = new ArrayList<RemovalCheck>(Integer.bitCount(alternatives));
+    	while (alternatives != 0) {
+    		int bit = alternatives & -alternatives;
+    		alternatives ^= bit;
+    		byte[] changed = values.clone();
+    		changed[index] = (byte) (Integer.numberOfTrailingZeros(bit) + 1);
+    		searches.add(new RemovalCheck(changed, 1));
+    	}
+    	ForkJoinTask.invokeAll(searches);
+    	
+    	boolean needed = false;
+    	for (RemovalCheck search : searches) {
+    		checks++;
+    		nodes += search.result.getNodes();
+    		byte[] alternative = search.result.getFirstSolution();
+    		if (alternative != null) {
+    			needed = true;
+    			long[] witness = new long[2];
+    			for (int cell = 0; cell < BoardGeometry.CELLS; cell++) {
+    				if (alternative[cell] != solution[cell]) {
+    					witness[0] |= maskLow(cell);
+    					witness[1] |= maskHigh(cell);
+    				}
+    			}
+    			witnesses.add(witness);
+    		}
+    	}
+    	return needed;
+    }
+    
+    /**
+     * returns the filled cells of the board as an 81 bit mask
+     * @return bits 0 - 63 of the mask in the first long and bits 64 - 80 in the second
+     */
+    private long[] givenMask() {
+    	long[] mask = new long[2];
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		if (valueAt(index) != 0) {
+    			mask[0] |= maskLow(index);
+    			mask[1] |= maskHigh(index);
+    		}
+    	}
+    	return mask;
+    }
+    
+    /**
+     * returns the low word of the 81 bit mask holding only the given cell
+     */
+    private static long maskLow(int index) {
+    	return index < 64 ? 1L << index : 0;
+    }
+    
+    /**
+     * returns the high word of the 81 bit mask holding only the given cell
+     */
+    private static long maskHigh(int index) {
+    	return index < 64 ? 0 : 1L << (index - 64);
+    }
+    
+    /**
+     * a method to create very hard sudoku boards; governed by its budget it attempts to randomly 
+     * remove as many cells as it can; the budget counts work rather than time so the result does 
+     * not depend on machine speed. Candidate removals (2x2 blocks for the first 16 cells, single 
+     * cells afterwards) are drawn in batches and checked concurrently on the ForkJoinPool the 
+     * board is generated from, or the common pool. Passing removals are committed in the order 
+     * they were drawn, re-checking any that follow an earlier commit from the same batch, so the 
+     * result does not depend on the number of threads either. A cell whose removal fails can 
+     * never be removed later, since removing more clues only adds solutions, so it is not 
+     * drawn again
      * @param completeBoard a completed board from which this method can build a solvable board
      */
 	private void createVeryHardDifficulty(CompletedBoard completeBoard) {
     	int operations = 0;
-    	Random numGenerator = new Random();
     	
     	int i = 0;
     	int j = 0;
@@ -151,63 +353,165 @@ public class SolvableBoard extends AbstractBoard implements Board{
     		i++;
     	}
     	
-    	
-    	int randomRow;
-    	int randomCol;
-    	
-    	long start = System.currentTimeMillis();
-    	long end = start + 1000; // 1000 ms
-    	while (System.currentTimeMillis() < end) {
-    		randomRow = numGenerator.nextInt(9);
-    		randomCol = numGenerator.nextInt(9);
-    		if (operations < 16) {
-    			if (randomRow < 8 && randomCol < 8) {
-					if (!cellIsEmpty(randomRow, randomCol) 
-							&& !cellIsEmpty(randomRow + 1, randomCol) 
-							&& !cellIsEmpty(randomRow, randomCol + 1) 
-							&& !cellIsEmpty(randomRow +1, randomCol +1)) {
-						int cellA = getCell(randomRow, randomCol);
-						int cellB = getCell(randomRow + 1, randomCol);
-						int cellC = getCell(randomRow, randomCol + 1);
-						int cellD = getCell(randomRow + 1, randomCol + 1);
-						removeValue(randomRow, randomCol);
-						removeValue(randomRow + 1, randomCol);
-						removeValue(randomRow, randomCol + 1);
-						removeValue(randomRow + 1, randomCol + 1);
-						if (checkNsoln()){
-				    		operations+= 4;
-				    	} else {
-				    		setCell(randomRow, randomCol, cellA);
-				    		setCell(randomRow + 1, randomCol, cellB);
-				    		setCell(randomRow, randomCol + 1, cellC);
-				    		setCell(randomRow + 1, randomCol + 1, cellD);
-			    		}
-					}
+    	boolean[] necessary = new boolean[BoardGeometry.CELLS];
+    	while (!generationDone()) {
+    		boolean blocks = operations < 16;
+    		int[] batch = drawRemovals(blocks, necessary);
+    		if (batch.length == 0 && blocks) {
+    			blocks = false;
+    			batch = drawRemovals(blocks, necessary);
+    		}
+    		if (batch.length == 0) {
+    			break;
+    		}
+    		
+    		byte[] values = copyValues();
+    		RemovalCheck[] removalChecks = new RemovalCheck[batch.length];
+    		long[] hashes = new long[batch.length];
+    		int[] known = new int[batch.length];
+    		List<RemovalCheck> pending = new ArrayList<RemovalCheck>(batch.length);
+    		for (int k = 0; k < batch.length; k++) {
+    			byte[] removed = values.clone();
+    			hashes[k] = zobristHash();
+    			for (int index : removalCells(batch[k], blocks)) {
+    				hashes[k] ^= zobristKey(index, removed[index]);
+    				removed[index] = 0;
     			}
-    		} else {
-	    		if (!cellIsEmpty(randomRow, randomCol)) {
-		    		int val = getCell(randomRow, randomCol);
-		    		removeValue(randomRow, randomCol);
-		    		if (checkNsoln()){
-			    		operations++;
-			    	} else {
-			    		setCell(randomRow, randomCol, val);
-			    	}
-		    	}
+    			known[k] = memo == null ? UniquenessMemo.UNKNOWN : memo.lookup(hashes[k]);
+    			if (known[k] == UniquenessMemo.UNKNOWN) {
+    				removalChecks[k] = new RemovalCheck(removed, 2);
+    				pending.add(removalChecks[k]);
+    			}
+    		}
+    		ForkJoinTask.invokeAll(pending);
+    		
+    		boolean committed = false;
+    		for (int k = 0; k < batch.length && !generationDone(); k++) {
+    			int[] cells = removalCells(batch[k], blocks);
+    			boolean unique = known[k] == UniquenessMemo.UNIQUE;
+    			if (removalChecks[k] != null) {
+    				SolverResult result = removalChecks[k].result;
+    				checks++;
+    				nodes += result.getNodes();
+    				unique = result.isUnique();
+    				if (memo != null) {
+    					memo.record(hashes[k], unique);
+    				}
+    			}
+    			if (!unique || !allFilled(cells)) {
+    				if (!blocks && !unique) {
+    					necessary[batch[k]] = true;
+    				}
+    				continue;
+    			}
+    			
+    			int[] removedValues = new int[cells.length];
+    			for (int c = 0; c < cells.length; c++) {
+    				removedValues[c] = valueAt(cells[c]);
+    				removeValue(BoardGeometry.ROW[cells[c]], BoardGeometry.COLUMN[cells[c]]);
+    			}
+    			// the batch was checked against the board before any commit of this batch
+    			if (committed && !checkNsoln()) {
+    				for (int c = 0; c < cells.length; c++) {
+    					setCell(BoardGeometry.ROW[cells[c]], BoardGeometry.COLUMN[cells[c]], removedValues[c]);
+    				}
+    				if (!blocks) {
+    					necessary[batch[k]] = true;
+    				}
+    			} else {
+    				committed = true;
+    				operations += cells.length;
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * draws up to REMOVAL_BATCH distinct candidate removals at random; either single filled cells 
+     * not yet known to be necessary, or the top left cells of completely filled 2x2 blocks
+     * @param blocks true to draw 2x2 blocks, false to draw single cells
+     * @param necessary the cells known to be necessary
+     * @return the cell indices of the drawn candidates
+     */
+    private int[] drawRemovals(boolean blocks, boolean[] necessary) {
+    	int[] eligible = new int[BoardGeometry.CELLS];
+    	int count = 0;
+    	for (int index = 0; index < BoardGeometry.CELLS; index++) {
+    		if (blocks) {
+    			if (BoardGeometry.ROW[index] < 8 && BoardGeometry.COLUMN[index] < 8
+    					&& allFilled(removalCells(index, true))) {
+    				eligible[count++] = index;
+    			}
+    		} else if (valueAt(index) != 0 && !necessary[index]) {
+    			eligible[count++] = index;
+    		}
+    	}
+    	
+    	int size = Math.min(count, REMOVAL_BATCH);
+    	for (int k = 0; k < size; k++) {
+    		int pick = k + numGenerator.nextInt(count - k);
+    		int swap = eligible[k];
+    		eligible[k] = eligible[pick];
+    		eligible[pick] = swap;
+    	}
+    	return Arrays.copyOf(eligible, size);
+    }
+    
+    /**
+     * returns the cells cleared by a candidate removal
+     * @param index the cell, or the top left cell of the 2x2 block
+     * @param block true if the candidate is a 2x2 block
+     * @return the indices of the cells to clear
+     */
+    private static int[] removalCells(int index, boolean block) {
+    	if (block) {
+    		return new int[] {index, index + 1, index + 9, index + 10};
+    	}
+    	return new int[] {index};
+    }
+    
+    /**
+     * checks whether every given cell holds a value
+     * @param cells the indices of the cells to check
+     * @return true if none of the cells are empty
+     */
+    private boolean allFilled(int[] cells) {
+    	for (int index : cells) {
+    		if (valueAt(index) == 0) {
+    			return false;
     		}
     	}
+    	return true;
+    }
+    
+    /**
+     * a solution count of one candidate removal, run on its own copy of the board
+     */
+    private static class RemovalCheck extends RecursiveAction {
+    	RemovalCheck(byte[] values, int limit) {
+    		this.values = values;
+    		this.limit = limit;
+    	}
+    	
+    	protected void compute() {
+    		result = SOLVER.countSolutions(values, limit);
+    	}
+    	
+    	private final byte[] values;
+    	private final int limit;
+    	private SolverResult result;
+		private static final long serialVersionUID = -1764304826335149375L;
     }
     
 	/**
-	 * an arbitrary difficult method to generate solvable boards, given a difficulty n 
-	 * it will remove 41 + n * 4 cells from the sudoku board where n is a number between 1 - 2
-	 * inclusive; removes random cells from the board to create arbitrarily difficult boards
+	 * an arbitrary difficult method to generate solvable boards; removes random cells from the 
+	 * board until the budget's target clue count is reached (by default 41 + n * 4 cells are 
+	 * removed for a difficulty n between 1 - 2 inclusive), 15 removals have failed or the budget 
+	 * is exhausted
 	 * @param completeBoard a completed board from which to build the solvable board
-	 * @param difficulty the difficulty of the board; either EASY(1) or MEDIUM(2)
 	 */
-    private void createArbitraryDifficult(CompletedBoard completeBoard, Difficulty difficulty) {
+    private void createArbitraryDifficult(CompletedBoard completeBoard) {
     	int operations = 0;
-    	Random numGenerator = new Random();
     	
     	int i = 0;
     	int j = 0;
@@ -225,7 +529,7 @@ public class SolvableBoard extends AbstractBoard implements Board{
     	int randomRow;
     	int randomCol;
     	
-    	while (operations < (41 + (difficulty.getValue()) * 4) && attempts < 15) {
+    	while (!generationDone() && attempts < 15) {
     		randomRow = numGenerator.nextInt(9);
     		randomCol = numGenerator.nextInt(9);
     		if (operations < 16) {
@@ -269,116 +573,46 @@ public class SolvableBoard extends AbstractBoard implements Board{
     }
 
     /**
-     * checks for unique solutions to a board
+     * checks for unique solutions to a board, answering from the memo when the same board has 
+     * been checked before
      * @return true if there is only one solution; false otherwise
      */
     private boolean checkNsoln() {
-    	boolean uniqueSoln = false;
-    	num = 0;
-    	if (backtrackSoln(0) == 1) {
-    		uniqueSoln = true;
-    	}
-    	return uniqueSoln;
-    }
-    
-    /**
-     * reverse solution checker for hard difficulty, increases execution time by needing 
-     * to backtrack less given hard's algorithm
-     * @return true if there is only one solution; false otherwise
-     */
-    private boolean checkHardSoln() {
-    	boolean uniqueSoln = false;
-    	num = 0;
-    	if (backtrackHard(80) == 1) {
-    		uniqueSoln = true;
+    	long hash = zobristHash();
+    	if (memo != null) {
+    		int known = memo.lookup(hash);
+    		if (known != UniquenessMemo.UNKNOWN) {
+    			return known == UniquenessMemo.UNIQUE;
+    		}
     	}
-		return uniqueSoln;
-	}
-    
-    /**
-     * a variant of a backtracking algorithm to check from the bottom right corner right to left, 
-     * down to up checking for unique solutions only used by hard algorithm as it improves it's 
-     * execution time
-     * @param index the index used to recursively find the next cell to check
-     * @return 1 if there is a unique solution; 0 if no solutions(shouldn't happen); otherwise an 
-     * integer greater than 1 (multiple solutions);
-     */
-    private int backtrackHard(int index) {
-    	if (isFinished()) {
-    		num++;
-    		return num;
+    	SolverResult result = SOLVER.countSolutions(copyValues(), 2);
+    	checks++;
+    	nodes += result.getNodes();
+    	if (memo != null) {
+    		memo.record(hash, result.isUnique());
     	}
-		int i = index / 9;
-		int j = index % 9;
-		if (cellIsEmpty(i, j)) {
-			for (int k = 1; k <= 9; k++) {
-				if (checkRow(k, i, j) && checkColumn(k, i, j) && checkBox(k, i, j)) {
-					setCell(i, j, k);
-					backtrackHard(index - 1);
-					removeValue(i, j);
-				}
-				if (num > 1) {
-					return num;
-				}
-			}
-			return num;
-		} else {
-			backtrackHard(index - 1);
-		}
-
-    	return num;
-	}
+    	return result.isUnique();
+    }
     
     /**
-     * a recursive backtracking algorithm to check for number of solutions with early exit
-     * @param b a board to check for n solutions
-     * @return an integer with the number of solutions 0(no solutions); 1(unique);
-     * or > 1 (multiple solutions)
+     * checks whether clue removal should stop; an interrupt also stops it, leaving a board that 
+     * is still unique but has more clues than it could have
+     * @return true if the budget is exhausted, the target clue count has been reached or the 
+     * generating thread has been interrupted
      */
-    private int backtrackSoln(int index) {
-    	if (isFinished()) {
-    		num++;
-    		return num;
-    	}
-		int i = index / 9;
-		int j = index % 9;
-		if (cellIsEmpty(i, j)) {
-			for (int k = 1; k <= 9; k++) {
-				if (checkRow(k, i, j) && checkColumn(k, i, j) && checkBox(k, i, j)) {
-					setCell(i, j, k);
-					backtrackSoln(index + 1);
-					removeValue(i, j);
-				}
-				if (num > 1) {
-					return num;
-				}
-			}
-			return num;
-		} else {
-			backtrackSoln(index + 1);
-		}
-
-    	return num;
+    private boolean generationDone() {
+    	return budgetExhausted() || budget.isTargetReached(filledCount())
+    		|| Thread.currentThread().isInterrupted();
     }
     
     /**
-     * a method to check whether the board is at a solution state or not
-     * @return true if there are no empty cells false otherwise
+     * checks whether the work done so far has used up the budget
+     * @return true if the check or node limit has been reached
      */
-    private boolean isFinished() {
-    	boolean retval = true;
-    	
-    	for (int i = 0; i <= Board.MAX_ROW; i++) {
-    		for (int j = 0; j <= Board.MAX_COLUMN; j++) {
-    			if (cellIsEmpty(i, j)) {
-    				retval = false;
-    			}
-    		}
-    	}
-    	
-    	return retval;
+    private boolean budgetExhausted() {
+    	return budget.isExhausted(checks, nodes);
     }
-
+    
     /**
      * a method that sets all the givens to be unchangeable and all the spaces to be changeable
      */
@@ -399,6 +633,18 @@ public class SolvableBoard extends AbstractBoard implements Board{
         }
     }
     
+	// candidate removals checked concurrently by the very hard generator; fixed so
+	// that the result does not depend on the number of threads
+	private static final int REMOVAL_BATCH = 16;
+	// slots of the memo each generation gets; far more than the checks of one board
+	private static final int MEMO_CAPACITY = 4096;
 	private static final long serialVersionUID = 5319100561708471310L;
-    private int num;
+	// solution counters are stateless, so every board shares one
+	private static final SolutionCounter SOLVER = new ConstraintSolver();
+	private transient SplittableRandom numGenerator;
+	private transient GenerationBudget budget;
+	private transient UniquenessMemo memo;
+	private transient GenerationStats stats;
+	private transient long checks;
+	private transient long nodes;
 }
@@ -0,0 +1,175 @@
+package sudokuBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures uniqueness checks per second of the dancing links and constraint
+ * propagation solution counters against the original row-major backtracking search,
+ * on freshly generated boards of every difficulty, then runs one shared constraint
+ * solver from every core at once.
+ * Run with: java sudokuBackend.SolverBenchmark [boards per difficulty]
+ */
+public class SolverBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int boards = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		List<byte[]> all = new ArrayList<byte[]>();
+
+		for (Difficulty difficulty : Difficulty.values()) {
+			byte[][] puzzles = new byte[boards][];
+			for (int i = 0; i < boards; i++) {
+				puzzles[i] = new SolvableBoard(new CompletedBoard(), difficulty).copyValues();
+				all.add(puzzles[i]);
+			}
+
+			double dancingLinks = checksPerSecond(puzzles, new DancingLinks());
+			double propagation = checksPerSecond(puzzles, new ConstraintSolver());
+			double backtracking = checksPerSecond(puzzles, null);
+			System.out.printf("%-10s dancing links %9.0f/s   propagation %9.0f/s   backtracking %9.0f/s"
+					+ "   nodes/check %5.1f%n", difficulty, dancingLinks, propagation, backtracking,
+					averageNodes(puzzles));
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		System.out.printf("shared propagation solver on %d threads %9.0f/s%n", threads,
+				sharedChecksPerSecond(all.toArray(new byte[all.size()][]), threads));
+	}
+
+	/**
+	 * Repeatedly checks every puzzle for uniqueness for roughly RUN_MILLIS and returns
+	 * the achieved rate. A null counter uses the original backtracking search.
+	 */
+	private static double checksPerSecond(byte[][] puzzles, SolutionCounter counter) {
+		long checks = 0;
+		long start = System.nanoTime();
+		long end = start + RUN_MILLIS * 1000000L;
+		while (System.nanoTime() < end) {
+			for (int i = 0; i < puzzles.length; i++) {
+				int solutions = counter != null ? counter.countSolutions(puzzles[i], 2).getSolutions()
+						: new LegacyBacktracker(puzzles[i]).countSolutions();
+				if (solutions != 1) {
+					throw new IllegalStateException("Generated board is not unique.");
+				}
+				checks++;
+			}
+		}
+		return checks * 1e9 / (System.nanoTime() - start);
+	}
+
+	/**
+	 * Checks every puzzle from several threads at once through one shared solver.
+	 */
+	private static double sharedChecksPerSecond(final byte[][] puzzles, int threads)
+			throws Exception {
+		final SolutionCounter shared = new ConstraintSolver();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Long>> results = new ArrayList<Future<Long>>();
+		long start = System.nanoTime();
+		final long end = start + RUN_MILLIS * 1000000L;
+		for (int t = 0; t < threads; t++) {
+			results.add(executor.submit(new Callable<Long>() {
+				public Long call() {
+					long checks = 0;
+					while (System.nanoTime() < end) {
+						for (byte[] puzzle : puzzles) {
+							if (!shared.countSolutions(puzzle, 2).isUnique()) {
+								throw new IllegalStateException("Generated board is not unique.");
+							}
+							checks++;
+						}
+					}
+					return checks;
+				}
+			}));
+		}
+		long checks = 0;
+		for (Future<Long> result : results) {
+			checks += result.get();
+		}
+		executor.shutdown();
+		return checks * 1e9 / (System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the average number of nodes the constraint solver visits per check.
+	 */
+	private static double averageNodes(byte[][] puzzles) {
+		ConstraintSolver solver = new ConstraintSolver();
+		long nodes = 0;
+		for (byte[] puzzle : puzzles) {
+			nodes += solver.countSolutions(puzzle, 2).getNodes();
+		}
+		return (double) nodes / puzzles.length;
+	}
+
+	/**
+	 * The uniqueness check SolvableBoard originally used: cells are visited in
+	 * row-major order, values 1 - 9 are tried in turn with linear row, column and box
+	 * scans, and the whole board is scanned for completion at every node.
+	 */
+	private static class LegacyBacktracker {
+
+		LegacyBacktracker(byte[] values) {
+			board = values.clone();
+		}
+
+		int countSolutions() {
+			num = 0;
+			return backtrackSoln(0);
+		}
+
+		private int backtrackSoln(int index) {
+			if (isFinished()) {
+				num++;
+				return num;
+			}
+			if (board[index] == 0) {
+				for (int k = 1; k <= 9; k++) {
+					if (isLegal(k, index)) {
+						board[index] = (byte) k;
+						backtrackSoln(index + 1);
+						board[index] = 0;
+					}
+					if (num > 1) {
+						return num;
+					}
+				}
+				return num;
+			} else {
+				backtrackSoln(index + 1);
+			}
+			return num;
+		}
+
+		private boolean isLegal(int value, int index) {
+			for (int unit : BoardGeometry.UNITS_OF[index]) {
+				for (int other : BoardGeometry.UNIT_CELLS[unit]) {
+					if (other != index && board[other] == value) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private boolean isFinished() {
+			boolean retval = true;
+			for (int index = 0; index < BoardGeometry.CELLS; index++) {
+				if (board[index] == 0) {
+					retval = false;
+				}
+			}
+			return retval;
+		}
+
+		private final byte[] board;
+		private int num;
+	}
+
+	private static final long RUN_MILLIS = 2000;
+}
@@ -0,0 +1,98 @@
+package sudokuBackend;
+
+/**
+ * The outcome of one solution count: the number of solutions found up to the
+ * requested limit, and the work it took.
+ */
+public class SolverResult {
+
+	/**
+	 * Constructs a solver result.
+	 * @param solutions the number of solutions found, at most the limit.
+	 * @param limit the limit the count was run with.
+	 * @param nodes the number of search nodes visited.
+	 * @param elapsedNanos the time the count took.
+	 */
+	public SolverResult(int solutions, int limit, long nodes, long elapsedNanos) {
+		this(solutions, limit, nodes, elapsedNanos, null);
+	}
+
+	/**
+	 * Constructs a solver result that records the first solution found.
+	 * @param solutions the number of solutions found, at most the limit.
+	 * @param limit the limit the count was run with.
+	 * @param nodes the number of search nodes visited.
+	 * @param elapsedNanos the time the count took.
+	 * @param firstSolution the 81 values of the first solution, or null.
+	 */
+	public SolverResult(int solutions, int limit, long nodes, long elapsedNanos,
+			byte[] firstSolution) {
+		this.solutions = solutions;
+		this.limit = limit;
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+		this.firstSolution = firstSolution;
+	}
+
+	/**
+	 * Returns the number of solutions found.
+	 * @return the solution count, at most the limit.
+	 */
+	public int getSolutions() {
+		return solutions;
+	}
+
+	/**
+	 * Returns the limit the count was run with.
+	 * @return the solution limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Returns whether the board has exactly one solution. Only meaningful for limits
+	 * of 2 or more.
+	 * @return true if exactly one solution was found.
+	 */
+	public boolean isUnique() {
+		return solutions == 1 && limit > 1;
+	}
+
+	/**
+	 * Returns the number of search nodes visited.
+	 * @return the node count.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the time the count took.
+	 * @return the elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the first solution found, which serves as a witness when more than one
+	 * solution is possible.
+	 * @return a copy of the 81 solution values in row-major order, or null if no solution
+	 * was found or the counter does not record solutions.
+	 */
+	public byte[] getFirstSolution() {
+		return firstSolution == null ? null : firstSolution.clone();
+	}
+
+	public String toString() {
+		return solutions + (solutions >= limit ? "+" : "") + " solutions, " + nodes + " nodes, "
+				+ elapsedNanos / 1000 + " us";
+	}
+
+	private final int solutions;
+	private final int limit;
+	private final long nodes;
+	private final long elapsedNanos;
+	private final byte[] firstSolution;
+}
@@ -0,0 +1,107 @@
+package sudokuBackend;
+
+import java.util.SplittableRandom;
+
+/**
+ * A member of the sudoku symmetry group: a relabeling of the digits, a permutation of
+ * the rows within each band and of the bands, the same for columns within stacks and
+ * the stacks, and an optional transposition. Every such transform maps a valid grid to
+ * a valid grid and a unique puzzle to a unique puzzle needing exactly the same
+ * techniques, so one graded puzzle stands for millions of fresh-looking ones. Applying
+ * a transform is a single pass over the 81 cells.
+ */
+public class SymmetryTransform {
+
+	/**
+	 * Constructs a transform from its cell and digit mappings.
+	 * @param source for every cell, the cell of the original board its value comes from.
+	 * @param digits for every digit 0 - 9, the digit it becomes; 0 must map to 0.
+	 */
+	private SymmetryTransform(int[] source, byte[] digits) {
+		this.source = source;
+		this.digits = digits;
+	}
+
+	/**
+	 * Draws a transform uniformly at random from the symmetry group.
+	 * @param random the source of randomness.
+	 * @return a random transform.
+	 */
+	public static SymmetryTransform random(SplittableRandom random) {
+		byte[] digits = new byte[10];
+		int[] relabel = shuffle(9, random);
+		for (int digit = 1; digit <= 9; digit++) {
+			digits[digit] = (byte) (relabel[digit - 1] + 1);
+		}
+
+		int[] rows = lineOrder(random);
+		int[] columns = lineOrder(random);
+		boolean transpose = random.nextBoolean();
+		int[] source = new int[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			int row = BoardGeometry.ROW[index];
+			int column = BoardGeometry.COLUMN[index];
+			source[index] = transpose ? BoardGeometry.indexOf(rows[column], columns[row])
+					: BoardGeometry.indexOf(rows[row], columns[column]);
+		}
+		return new SymmetryTransform(source, digits);
+	}
+
+	/**
+	 * Applies this transform to a board's values.
+	 * @param values the 81 cell values in row-major order, 0 for an empty cell.
+	 * @return a new array holding the transformed values.
+	 */
+	public byte[] apply(byte[] values) {
+		byte[] transformed = new byte[BoardGeometry.CELLS];
+		for (int index = 0; index < BoardGeometry.CELLS; index++) {
+			transformed[index] = digits[values[source[index]]];
+		}
+		return transformed;
+	}
+
+	/**
+	 * Applies this transform to a puzzle and its solution. The result keeps the
+	 * difficulty, seed and generation statistics of the puzzle it was derived from.
+	 * @param puzzle the puzzle to transform.
+	 * @return an equivalent puzzle.
+	 */
+	public Puzzle apply(Puzzle puzzle) {
+		CompletedBoard solution = new CompletedBoard(apply(puzzle.getSolution().copyValues()));
+		SolvableBoard board = new SolvableBoard(apply(puzzle.getBoard().copyValues()),
+				puzzle.getBoard().getGenerationStats());
+		return new Puzzle(puzzle.getSeed(), solution, board, puzzle.getDifficulty());
+	}
+
+	/**
+	 * Returns a random order of the nine rows (or columns) that keeps each band (or
+	 * stack) together: the bands are permuted, then the lines within every band.
+	 */
+	private static int[] lineOrder(SplittableRandom random) {
+		int[] bands = shuffle(3, random);
+		int[] lines = new int[9];
+		for (int band = 0; band < 3; band++) {
+			int[] within = shuffle(3, random);
+			for (int line = 0; line < 3; line++) {
+				lines[band * 3 + line] = bands[band] * 3 + within[line];
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns a uniformly random permutation of 0 to size - 1.
+	 */
+	private static int[] shuffle(int size, SplittableRandom random) {
+		int[] order = new int[size];
+		for (int k = 0; k < size; k++) {
+			int pick = random.nextInt(k + 1);
+			order[k] = order[pick];
+			order[pick] = k;
+		}
+		return order;
+	}
+
+	private final int[] source;
+	private final byte[] digits;
+}
@@ -0,0 +1,43 @@
+package sudokuBackend;
+
+/**
+ * The solving techniques a HumanSolver tries, in the order it tries them: from the
+ * easiest to spot to the hardest. Each technique has a name for display and a score
+ * that a Grade adds up for every step the technique solves.
+ */
+public enum Technique {
+    HIDDEN_SINGLE ("Hidden Single", 1),
+    NAKED_SINGLE ("Naked Single", 2),
+    POINTING ("Pointing", 6),
+    CLAIMING ("Claiming", 7),
+    NAKED_PAIR ("Naked Pair", 10),
+    HIDDEN_PAIR ("Hidden Pair", 12),
+    NAKED_TRIPLE ("Naked Triple", 16),
+    HIDDEN_TRIPLE ("Hidden Triple", 20),
+    X_WING ("X-Wing", 30),
+    FORCING_CHAIN ("Forcing Chain", 50);
+
+    private Technique(String techniqueString, int score) {
+    	this.techniqueString = techniqueString;
+    	this.score = score;
+    }
+
+    /**
+     * Returns the name of this technique.
+     * @return the name of this technique.
+     */
+    public String toString() {
+    	return techniqueString;
+    }
+
+    /**
+     * Returns the score of one step solved with this technique.
+     * @return the score of this technique.
+     */
+    public int getScore() {
+    	return score;
+    }
+
+    private int score;
+    private String techniqueString;
+}
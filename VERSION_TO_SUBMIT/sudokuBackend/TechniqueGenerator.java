@@ -0,0 +1,227 @@
+package sudokuBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates puzzles whose solution path needs a target technique at least once and
+ * nothing harder, by rejection sampling. An attempt removes the clues of a completed
+ * board in random order, keeping a removal only if the removed cell can be deduced back
+ * with techniques up to the target. That check stops as soon as the cell is filled
+ * again, rather than grading the whole board: the rest of the board was already
+ * solvable, and deductions only get easier with more cells known. A board solved by
+ * sound deductions has a unique solution, so no solver runs. The finished board is
+ * graded once and kept if its hardest technique is the target. Attempts run on a pool
+ * of threads, each puzzle reproducible from its seed alone.
+ * Run with: java sudokuBackend.TechniqueGenerator [technique] [puzzles] [threads]
+ */
+public class TechniqueGenerator {
+
+	/**
+	 * Creates a generator for a technique running one thread per available core.
+	 * @param target the technique every puzzle must need.
+	 */
+	public TechniqueGenerator(Technique target) {
+		this(target, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a generator for a technique.
+	 * @param target the technique every puzzle must need.
+	 * @param threads the number of attempts run at once.
+	 */
+	public TechniqueGenerator(Technique target, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("A generator needs at least one thread.");
+		}
+		this.target = target;
+		this.threads = threads;
+		executor = Executors.newFixedThreadPool(threads, new GeneratorThreadFactory("technique"));
+	}
+
+	/**
+	 * Makes one attempt at a puzzle.
+	 * @param seed the seed of the attempt.
+	 * @return the puzzle, or null if it does not need the target technique.
+	 */
+	public Puzzle attempt(long seed) {
+		long start = System.nanoTime();
+		SplittableRandom random = new SplittableRandom(seed);
+		CompletedBoard solution = new CompletedBoard(random.split());
+		byte[] givens = solution.copyValues();
+		int[] order = new int[BoardGeometry.CELLS];
+		SplittableRandom shuffle = random.split();
+		for (int i = 0; i < order.length; i++) {
+			int j = shuffle.nextInt(i + 1);
+			order[i] = order[j];
+			order[j] = i;
+		}
+
+		HumanSolver solver = new HumanSolver(givens);
+		int clues = BoardGeometry.CELLS;
+		long checks = 0;
+		long solverSteps = 0;
+		for (int index : order) {
+			byte value = givens[index];
+			givens[index] = 0;
+			solver.reset(givens);
+			checks++;
+			while (solver.getValue(index) == 0 && solver.step(target) != null) {
+				solverSteps++;
+			}
+			if (solver.getValue(index) == 0) {
+				givens[index] = value;
+			} else {
+				clues--;
+			}
+		}
+		Grade grade = Grade.of(givens);
+		checks++;
+		for (Technique technique : Technique.values()) {
+			solverSteps += grade.getCount(technique);
+		}
+		attempts.incrementAndGet();
+		steps.addAndGet(solverSteps);
+		if (!grade.isSolved() || grade.getHardest() != target) {
+			return null;
+		}
+		accepted.incrementAndGet();
+		// checks are the re-derivations and the final grade, nodes the solver steps they took
+		GenerationStats stats = new GenerationStats(checks, solverSteps, clues,
+				System.nanoTime() - start, false, 0, 0);
+		return new Puzzle(seed, solution, new SolvableBoard(givens, stats), grade.getDifficulty());
+	}
+
+	/**
+	 * Generates puzzles on all threads, trying consecutive seeds until enough attempts
+	 * have been accepted.
+	 * @param count the number of puzzles wanted.
+	 * @param firstSeed the seed of the first attempt.
+	 * @return count puzzles that need the target technique.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	public List<Puzzle> generate(final int count, long firstSeed) throws InterruptedException {
+		final List<Puzzle> puzzles = new ArrayList<Puzzle>(count);
+		final AtomicLong nextSeed = new AtomicLong(firstSeed);
+		final CountDownLatch finished = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						while (!isFull()) {
+							Puzzle puzzle = attempt(nextSeed.getAndIncrement());
+							if (puzzle != null) {
+								synchronized (puzzles) {
+									if (puzzles.size() < count) {
+										puzzles.add(puzzle);
+									}
+								}
+							}
+						}
+					} finally {
+						finished.countDown();
+					}
+				}
+
+				private boolean isFull() {
+					synchronized (puzzles) {
+						return puzzles.size() >= count;
+					}
+				}
+			});
+		}
+		finished.await();
+		lastElapsedNanos = System.nanoTime() - start;
+		lastCount = count;
+		return puzzles;
+	}
+
+	/**
+	 * Returns the technique every puzzle needs.
+	 * @return the target technique.
+	 */
+	public Technique getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the number of attempts made so far.
+	 * @return the attempt count.
+	 */
+	public long getAttempts() {
+		return attempts.get();
+	}
+
+	/**
+	 * Returns the number of solver steps taken by all attempts so far, accepted or not.
+	 * @return the step count.
+	 */
+	public long getSteps() {
+		return steps.get();
+	}
+
+	/**
+	 * Returns the share of attempts that were accepted.
+	 * @return accepted attempts over all attempts, 0 before the first.
+	 */
+	public double getAcceptanceRate() {
+		long made = attempts.get();
+		return made == 0 ? 0 : (double) accepted.get() / made;
+	}
+
+	/**
+	 * Returns the rate of the last call to generate.
+	 * @return the puzzles generated per second of wall time.
+	 */
+	public double getPuzzlesPerSecond() {
+		return lastElapsedNanos == 0 ? 0 : lastCount / (lastElapsedNanos / 1e9);
+	}
+
+	/**
+	 * Stops the threads of this generator.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Generates a set of puzzles for a technique and reports the acceptance rate and
+	 * throughput.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		Technique target = args.length > 0 ? Technique.valueOf(args[0]) : Technique.X_WING;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int threads = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		TechniqueGenerator generator = new TechniqueGenerator(target, threads);
+		try {
+			List<Puzzle> puzzles = generator.generate(count, 0);
+			long clues = 0;
+			for (Puzzle puzzle : puzzles) {
+				clues += puzzle.getBoard().getGenerationStats().getClues();
+			}
+			System.out.printf("%s: %d puzzles, %d attempts, %.1f%% accepted, %.2f puzzles/s, "
+					+ "%.0f solver steps per attempt, %.1f mean clues on %d threads%n", target,
+					puzzles.size(), generator.getAttempts(), 100 * generator.getAcceptanceRate(),
+					generator.getPuzzlesPerSecond(), (double) generator.getSteps() / generator.getAttempts(),
+					(double) clues / puzzles.size(), threads);
+		} finally {
+			generator.shutdown();
+		}
+	}
+
+	private final Technique target;
+	private final int threads;
+	private final ExecutorService executor;
+	private final AtomicLong attempts = new AtomicLong();
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong steps = new AtomicLong();
+	private volatile long lastElapsedNanos;
+	private volatile int lastCount;
+}
@@ -0,0 +1,87 @@
+package sudokuBackend;
+
+/**
+ * A bounded transposition table from the Zobrist hash of a board to whether that
+ * board has a unique solution. Generators consult it before running the solver, since
+ * a removal that failed and was rolled back is often drawn again from the very same
+ * board. The table is direct mapped: every hash has one slot, and a newer result
+ * simply replaces whatever held the slot before. A memo belongs to one generation and
+ * is not thread-safe.
+ */
+public class UniquenessMemo {
+
+	/**
+	 * Constructs an empty memo.
+	 * @param capacity the number of slots, rounded up to a power of two.
+	 */
+	public UniquenessMemo(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("A memo needs at least one slot.");
+		}
+		int slots = Integer.highestOneBit(capacity);
+		if (slots < capacity) {
+			slots <<= 1;
+		}
+		hashes = new long[slots];
+		results = new byte[slots];
+	}
+
+	/**
+	 * Looks up the result recorded for a board.
+	 * @param hash the Zobrist hash of the board.
+	 * @return UNIQUE or NOT_UNIQUE if the board has been recorded, UNKNOWN otherwise.
+	 */
+	public int lookup(long hash) {
+		lookups++;
+		int slot = slotOf(hash);
+		if (results[slot] != UNKNOWN && hashes[slot] == hash) {
+			hits++;
+			return results[slot];
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Records whether a board has a unique solution.
+	 * @param hash the Zobrist hash of the board.
+	 * @param unique true if the board has exactly one solution.
+	 */
+	public void record(long hash, boolean unique) {
+		int slot = slotOf(hash);
+		hashes[slot] = hash;
+		results[slot] = (byte) (unique ? UNIQUE : NOT_UNIQUE);
+	}
+
+	/**
+	 * Returns the number of lookups made.
+	 * @return the lookup count.
+	 */
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the number of lookups that found a recorded result.
+	 * @return the hit count.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Spreads the hash over the slots; Zobrist hashes are already uniform, so the low
+	 * bits serve.
+	 */
+	private int slotOf(long hash) {
+		return (int) hash & (hashes.length - 1);
+	}
+
+	public static final int UNKNOWN = 0;
+	public static final int UNIQUE = 1;
+	public static final int NOT_UNIQUE = 2;
+
+	private final long[] hashes;
+	private final byte[] results;
+	private long lookups;
+	private long hits;
+}
@@ -6,11 +6,14 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 
 import javax.swing.JOptionPane;
 import javax.swing.Timer;
 
 import sudokuBackend.Difficulty;
+import sudokuBackend.Hint;
+import sudokuBackend.SavedGame;
 
 /**
  * The Controller class defines (and appropriately binds) many 
@@ -28,7 +31,8 @@ public class Controller {
 	
 	/**
 	 * Creates a new Controller object and initializes the given InfoManager,
-	 * GameManger, and ViewComponents to be at the beginning of an easy game.
+	 * GameManger, and ViewComponents to resume the game in progress when the
+	 * application last stopped, or else to be at the beginning of an easy game.
 	 * @param view the given object which displays information to the user.
 	 * @param game the given object which holds information about the current state of the 
 	 * game.
@@ -39,16 +43,23 @@ public class Controller {
 		sudokuGame = game;
 		sudokuInfo = info;
 
-		loadingGame = false;
 		sudokuInfo.loadHighscores();
-		initialise(Difficulty.EASY);
+		SavedGame resumed = sudokuGame.resume();
+		if (resumed != null) {
+			sudokuInfo.restore(resumed.getElapsedSeconds(), resumed.getDifficulty());
+			loadingGame = true;
+			initialise(resumed.getDifficulty());
+		} else {
+			loadingGame = false;
+			initialise(Difficulty.EASY);
+		}
 		
-		GameMenuListener[] gameMenuListener = new GameMenuListener[10];
+		GameMenuListener[] gameMenuListener = new GameMenuListener[11];
 		ThemeMenuListener[] themeMenuListener = new ThemeMenuListener[4];
 		OptionsMenuListener[] optionsMenuListener = new OptionsMenuListener[4];
 		HelpMenuListener[] helpMenuListener = new HelpMenuListener[2];
 		
-		for (int i = 0; i < 10; i++) {
+		for (int i = 0; i < 11; i++) {
 			gameMenuListener[i] = new GameMenuListener(i);
 		}
 		
@@ -106,6 +117,17 @@ public class Controller {
 		sudokuView.addKeyListener(new KeyboardPressed());
 		timer = new Timer(1000, new TimerEventListener());
 		timer.start();
+		showAutosaveError();
+	}
+	
+	/**
+	 * Tells the player if autosaving has failed since they were last told.
+	 */
+	private void showAutosaveError() {
+		String error = sudokuGame.takeAutosaveError();
+		if (error != null) {
+			sudokuView.displayMessage(error);
+		}
 	}
 	
 	/**
@@ -137,15 +159,55 @@ public class Controller {
 	 * Updates the view to reflect the current state of the GameManager.
 	 */
 	private void setViewCells() {
+		int count = 0;
 		for (int i = 0; i < 9; i++) {
 			for (int j = 0; j < 9; j++) {
 				if (!sudokuGame.isChangeable(i, j)) {
 					sudokuView.setPermanentCell(i, j, sudokuGame.getCell(i, j));
-				} else if (sudokuGame.getCell(i, j) != 0) {
-					sudokuView.toggleCell(i, j, sudokuGame.getCell(i, j));
+				} else {
+					viewIndices[count] = i * 9 + j;
+					viewValues[count] = sudokuGame.getCell(i, j);
+					viewMarks[count++] = sudokuGame.getPencilMarks(i, j);
 				}
 			}
 		}
+		sudokuView.setCells(viewIndices, count, viewValues, viewMarks);
+		shownConflicts[0] = 0;
+		shownConflicts[1] = 0;
+		showConflicts();
+	}
+	
+	/**
+	 * Updates the cells the last action of the GameManager changed, in one batch.
+	 */
+	private void showChanges() {
+		int count = sudokuGame.getChangedCount();
+		for (int k = 0; k < count; k++) {
+			int index = sudokuGame.getChangedCell(k);
+			viewIndices[k] = index;
+			viewValues[k] = sudokuGame.getCell(index / 9, index % 9);
+			viewMarks[k] = sudokuGame.getPencilMarks(index / 9, index % 9);
+		}
+		sudokuView.setCells(viewIndices, count, viewValues, viewMarks);
+		showConflicts();
+	}
+	
+	/**
+	 * Restyles the cells that started or stopped clashing with another cell since the
+	 * conflicts were last shown.
+	 */
+	private void showConflicts() {
+		for (int word = 0; word < 2; word++) {
+			long conflicts = sudokuGame.getConflicts(word);
+			long changed = conflicts ^ shownConflicts[word];
+			while (changed != 0) {
+				long bit = Long.lowestOneBit(changed);
+				int index = word * 64 + Long.numberOfTrailingZeros(bit);
+				sudokuView.setConflict(index / 9, index % 9, (conflicts & bit) != 0);
+				changed ^= bit;
+			}
+			shownConflicts[word] = conflicts;
+		}
 	}
 
 	/**
@@ -155,18 +217,58 @@ public class Controller {
 	 * @param value the value with which to toggle the active cell.
 	 */
 	private void toggleActiveCell(int value) {
+		sudokuView.clearHighlights();
 		if (activeRow != NULL && activeColumn != NULL) {
 			if (sudokuGame.isChangeable(activeRow, activeColumn)) {
 			    if (markMode) {
-				    sudokuView.addPencilCell(activeRow, activeColumn, value);
+				    sudokuGame.toggleMark(activeRow, activeColumn, value);
 			    } else {
 				    sudokuGame.toggleCell(activeRow, activeColumn, value);
-				    sudokuView.toggleCell(activeRow, activeColumn, value);
 			    }
+			    showChanges();
 			}
 		}
 	}
 	
+	/**
+	 * Updates the cells an undone or redone move changed, and finishes the
+	 * game if the move completed it.
+	 * @param moved true if there was a move to undo or redo.
+	 */
+	private void showMove(boolean moved) {
+		sudokuView.clearHighlights();
+		if (moved) {
+			showChanges();
+			if (sudokuGame.isComplete()) {
+				finishGame();
+			}
+		}
+	}
+	
+	/**
+	 * Highlights the cells of the next hint and describes it to the player.
+	 */
+	private void showHint() {
+		Hint hint = sudokuGame.getHint();
+		if (hint == null) {
+			sudokuView.clearHighlights();
+			sudokuView.displayMessage("No hint available.");
+			return;
+		}
+		int target = hint.isMistake() ? hint.getCells()[0] : hint.getPlacedIndex();
+		sudokuView.highlightCells(hint.getCells(), target);
+		sudokuView.displayMessage(hint.toString());
+	}
+	
+	/**
+	 * Clears the value and pencil marks of the active cell.
+	 */
+	private void clearActiveCell() {
+		sudokuView.clearHighlights();
+		sudokuGame.clearCell(activeRow, activeColumn);
+		showChanges();
+	}
+	
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
 //--------------------------Action Listener Definitions-------------------------
@@ -198,18 +300,39 @@ public class Controller {
 			} else if (option == 3) {
 				initialise(Difficulty.VERY_HARD);
 			} else if (option == 4) {
-				sudokuGame.save();
-				sudokuInfo.save();
-				sudokuView.displayMessage("Save successful");
+				try {
+					sudokuGame.save(sudokuInfo.getTime(), sudokuInfo.getDifficulty());
+					sudokuView.displayMessage("Save successful");
+				} catch (IOException ex) {
+					sudokuView.displayMessage("Save failed: " + ex.getMessage());
+				}
 			} else if (option == 5) {
-				sudokuGame.load();
-				sudokuInfo.load();
+				SavedGame saved;
+				try {
+					saved = sudokuGame.load();
+				} catch (IOException ex) {
+					sudokuView.displayMessage("Load failed: " + ex.getMessage());
+					return;
+				}
+				sudokuInfo.restore(saved.getElapsedSeconds(), saved.getDifficulty());
 				loadingGame = true;
 				sudokuView.setTime(sudokuInfo.getTime());
 				timer.stop();
 				initialise(sudokuInfo.getDifficulty());
 			} else if (option == 6) {
+				timer.stop();
+				sudokuGame.close();
 				sudokuView.dispose();
+			} else if (option == 7) {
+				showMove(sudokuGame.undo());
+			} else if (option == 8) {
+				showMove(sudokuGame.redo());
+			} else if (option == 9) {
+				showHint();
+			} else if (option == 10) {
+				sudokuView.clearHighlights();
+				sudokuGame.autoFillMarks();
+				showChanges();
 			}	
 		}
 		
@@ -341,8 +464,7 @@ public class Controller {
 	private class DeletePressedListener implements ActionListener {
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			sudokuGame.clearCell(activeRow, activeColumn);
-			sudokuView.clearCell(activeRow, activeColumn);
+			clearActiveCell();
 		}
 	}
 
@@ -380,8 +502,7 @@ public class Controller {
 				}
 		    } else if (buttonPressed == KeyEvent.VK_BACK_SPACE 
 		    		|| buttonPressed == KeyEvent.VK_DELETE) {
-		    	sudokuGame.clearCell(activeRow, activeColumn);
-		    	sudokuView.clearCell(activeRow, activeColumn);
+		    	clearActiveCell();
 		    } else if (e.getKeyChar() == 'p' || e.getKeyChar() == 'P') {
 		    	markMode = !markMode;
 		    	sudokuView.togglePencilMarkMode();
@@ -418,6 +539,8 @@ public class Controller {
 		public void actionPerformed(ActionEvent arg0) {
 			sudokuInfo.incTime();
 			sudokuView.setTime(sudokuInfo.getTime());
+			sudokuGame.recordTime(sudokuInfo.getTime());
+			showAutosaveError();
 		}
 		
 	}
@@ -433,6 +556,12 @@ public class Controller {
 	private int activeRow;
 	private int activeColumn;
 	private boolean markMode;
+	// reused to pass batches of cells to the view
+	private final int[] viewIndices = new int[81];
+	private final int[] viewValues = new int[81];
+	private final int[] viewMarks = new int[81];
+	// the conflict mask of the game as the view currently shows it
+	private final long[] shownConflicts = new long[2];
 	
 	private ViewComponents sudokuView;
 	private GameManager sudokuGame;
@@ -1,14 +1,19 @@
 package sudokuFrontend;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.SplittableRandom;
 
+import sudokuBackend.BoardGeometry;
 import sudokuBackend.CompletedBoard;
 import sudokuBackend.Difficulty;
+import sudokuBackend.Hint;
+import sudokuBackend.HumanSolver;
+import sudokuBackend.MoveJournal;
+import sudokuBackend.Puzzle;
+import sudokuBackend.PuzzleBank;
+import sudokuBackend.PuzzlePool;
+import sudokuBackend.SavedGame;
 import sudokuBackend.SolvableBoard;
 
 /**
@@ -22,20 +27,101 @@ public class GameManager implements Serializable {
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
 	/**
-	 * Constructs a new empty GameManager.
+	 * Constructs a new empty GameManager, opens the puzzle bank if there is one and starts 
+	 * generating puzzles in the background. Opens the move journal that keeps the game in 
+	 * progress across crashes; without it the game is simply not autosaved.
 	 */
 	public GameManager() {
-    	
+    	puzzlePool = new PuzzlePool(PuzzlePool.DEFAULT_DEPTH);
+    	File bankFile = new File(PUZZLE_BANK_FILE);
+    	if (bankFile.exists()) {
+    		try {
+    			puzzleBank = new PuzzleBank(bankFile);
+    		} catch (IOException e) {
+    			System.err.println("Puzzle bank " + bankFile + " not used: " + e.getMessage());
+    		}
+    	}
+    	history = new long[HISTORY_SIZE];
+    	candidates = new short[81];
+    	hintMarks = new short[81];
+    	changedCells = new int[81];
+    	try {
+    		journal = new MoveJournal(new File(JOURNAL_FILE), new File(AUTOSAVE_FILE));
+    	} catch (IOException e) {
+    		reportAutosaveError("Autosave is off, the journal cannot be opened", e);
+    	}
     }
     
 	/**
 	 * Creates new data for an instance of a game of specified difficulty.
+	 * Picks a random record from the puzzle bank when it holds puzzles of that difficulty,
+	 * and otherwise, or if the record is damaged, takes a pre-generated puzzle from the 
+	 * pool, so this only generates on the calling thread if the background generator has 
+	 * fallen behind.
 	 * 
 	 * @param difficulty Difficulty of new game
 	 */
     public void newGame(Difficulty difficulty) {
-    	completed = new CompletedBoard();
-    	solvable = new SolvableBoard(completed, difficulty);
+    	Puzzle puzzle = null;
+    	if (puzzleBank != null) {
+    		try {
+    			puzzle = puzzleBank.random(difficulty, new SplittableRandom());
+    		} catch (IOException e) {
+    			System.err.println("Puzzle bank " + PUZZLE_BANK_FILE + " not used: " + e.getMessage());
+    		}
+    	}
+    	if (puzzle == null) {
+    		puzzle = puzzlePool.take(difficulty);
+    	}
+    	completed = puzzle.getSolution();
+    	solvable = puzzle.getBoard();
+    	pencilMarks = new short[81];
+    	this.difficulty = difficulty;
+    	elapsedSeconds = 0;
+    	rebuildCandidates();
+    	startJournal();
+    }
+    
+    /**
+     * Resumes the game that was in progress when the application last stopped, rebuilt 
+     * from the autosave snapshot and the moves journalled after it.
+     * 
+     * @return the resumed game, for its time and difficulty, or null if there is no 
+     * unfinished game to resume.
+     */
+    public SavedGame resume() {
+    	File autosave = new File(AUTOSAVE_FILE);
+    	if (journal == null || !autosave.exists()) {
+    		return null;
+    	}
+    	SavedGame saved;
+    	try {
+    		saved = MoveJournal.recover(autosave, new File(JOURNAL_FILE));
+    	} catch (IOException e) {
+    		reportAutosaveError("The autosaved game cannot be resumed", e);
+    		return null;
+    	}
+    	SolvableBoard board = saved.createBoard();
+    	if (board.isSolved()) {
+    		return null;
+    	}
+    	completed = saved.createSolution();
+    	solvable = board;
+    	pencilMarks = saved.getPencilMarks();
+    	difficulty = saved.getDifficulty();
+    	elapsedSeconds = saved.getElapsedSeconds();
+    	rebuildCandidates();
+    	startJournal();
+    	return saved;
+    }
+    
+    /**
+     * Returns the pool new games are taken from, e.g. to inspect its queue depths.
+     * 
+     * @return the puzzle pool of this GameManager.
+     */
+    public PuzzlePool getPuzzlePool() {
+    	return puzzlePool;
     }
     
     /**
@@ -45,7 +131,7 @@ public class GameManager implements Serializable {
      * false otherwise.
      */
     public boolean isComplete() {
-    	return solvable.isEqual(completed);
+    	return solvable.isSolved();
     }
     
     /**
@@ -63,19 +149,136 @@ public class GameManager implements Serializable {
      * Toggles the value of a specified cell.
      * If the value in the cell prior to this method being run
      * equals the "value" argument the cell will be empty,
-     * otherwise it will contain value.
+     * otherwise it will contain value. Placing a value clears the pencil marks 
+     * of the cell and removes the value from the pencil marks of its 20 peers, 
+     * all undone together.
      * 
      * @param row The row of the cell to toggle.
      * @param column The column of the cell to toggle.
      * @param value Value to be set
      */
     public void toggleCell(int row, int column, int value) {
-    	if (!solvable.cellIsEmpty(row, column) && 
-    		solvable.getCell(row, column) == value) {
-    		solvable.removeValue(row, column);
-    	} else {
-    	    solvable.setCell(row, column, value);
+    	int index = row * 9 + column;
+    	beginAction();
+    	if (getCell(row, column) == value) {
+    		play(index, EMPTY, 0);
+    		return;
+    	}
+    	play(index, value, 0);
+    	int bit = 1 << (value - 1);
+    	for (int peer : BoardGeometry.PEERS[index]) {
+    		if ((pencilMarks[peer] & bit) != 0) {
+    			play(peer, getCell(peer / 9, peer % 9), pencilMarks[peer] & ~bit);
+    		}
+    	}
+    }
+    
+    /**
+     * Toggles a pencil mark of a specified cell, removing the value of the cell 
+     * if it has one.
+     * 
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @param value The value marked or unmarked.
+     */
+    public void toggleMark(int row, int column, int value) {
+    	int index = row * 9 + column;
+    	beginAction();
+    	play(index, EMPTY, pencilMarks[index] ^ 1 << (value - 1));
+    }
+    
+    /**
+     * Sets the pencil marks of every empty changeable cell to its candidates, 
+     * as a single move that is undone together.
+     */
+    public void autoFillMarks() {
+    	beginAction();
+    	for (int index = 0; index < 81; index++) {
+    		if (solvable.isChangeable(index / 9, index % 9) && candidates[index] != 0) {
+    			play(index, EMPTY, candidates[index]);
+    		}
+    	}
+    }
+    
+    /**
+     * Takes back the last move that has not been undone.
+     * 
+     * @return true if a move was undone, false if there is no move to undo.
+     */
+    public boolean undo() {
+    	beginAction();
+    	if (undoable == 0) {
+    		return false;
+    	}
+    	long move;
+    	do {
+    		undoable--;
+    		redoable++;
+    		move = history[(historyStart + undoable) % HISTORY_SIZE];
+    		apply((int) (move & 0x7F), (int) (move >>> 7 & 0xF), (int) (move >>> 15 & 0x1FF));
+    	} while ((move & LINKED) != 0 && undoable > 0);
+    	return true;
+    }
+    
+    /**
+     * Plays again the last move undone.
+     * 
+     * @return true if a move was redone, false if there is no move to redo.
+     */
+    public boolean redo() {
+    	beginAction();
+    	if (redoable == 0) {
+    		return false;
     	}
+    	do {
+    		long move = history[(historyStart + undoable) % HISTORY_SIZE];
+    		undoable++;
+    		redoable--;
+    		apply((int) (move & 0x7F), (int) (move >>> 11 & 0xF), (int) (move >>> 24 & 0x1FF));
+    	} while (redoable > 0 && (history[(historyStart + undoable) % HISTORY_SIZE] & LINKED) != 0);
+    	return true;
+    }
+    
+    /**
+     * Returns the number of cells the last move, undo, redo or auto-fill changed.
+     * 
+     * @return the number of changed cells.
+     */
+    public int getChangedCount() {
+    	return changedCount;
+    }
+    
+    /**
+     * Returns a cell the last move, undo, redo or auto-fill changed.
+     * 
+     * @param k the position of the cell, from 0 to getChangedCount() - 1.
+     * @return the index (row * 9 + column) of the cell.
+     */
+    public int getChangedCell(int k) {
+    	return changedCells[k];
+    }
+    
+    /**
+     * Returns the candidates of a cell: the values held by none of its peers.
+     * 
+     * @param row Row of cell
+     * @param column Column of cell
+     * @return a 9 bit mask with bit value - 1 set for every candidate, 0 if the 
+     * cell holds a value.
+     */
+    public int getCandidates(int row, int column) {
+    	return candidates[row * 9 + column];
+    }
+    
+    /**
+     * Returns the pencil marks of a cell.
+     * 
+     * @param row Row of cell
+     * @param column Column of cell
+     * @return a 9 bit mask with bit value - 1 set for every value marked.
+     */
+    public int getPencilMarks(int row, int column) {
+    	return pencilMarks[row * 9 + column];
     }
     
     /**
@@ -93,13 +296,32 @@ public class GameManager implements Serializable {
     	}
     }
     /**
-     * Removes the value of a cell in the current instance of the game
+     * Removes the value and the pencil marks of a cell in the current instance of the game
      * 
      * @param row Row of cell
      * @param column Column of cell
      */
     public void clearCell(int row, int column) {
-    	solvable.removeValue(row, column);
+    	beginAction();
+    	play(row * 9 + column, EMPTY, 0);
+    }
+    
+    /**
+     * Records the time played in the move journal, compacting the journal into a fresh 
+     * snapshot once it has grown past COMPACT_RECORDS records.
+     * 
+     * @param elapsedSeconds the time played so far.
+     */
+    public void recordTime(int elapsedSeconds) {
+    	this.elapsedSeconds = elapsedSeconds;
+    	if (journal != null) {
+    		try {
+    			journal.recordTime(elapsedSeconds);
+    		} catch (IOException e) {
+    			stopJournal(e);
+    		}
+    	}
+    	compactJournal();
     }
     
     /**
@@ -137,45 +359,301 @@ public class GameManager implements Serializable {
     }
     
     /**
-     * Solves the current instance of the game
+     * Returns 64 bits of the 81-bit mask of cells whose value is repeated in their row, 
+     * column or box. The board keeps the mask up to date with every move.
+     * 
+     * @param word 0 for cells 0 - 63, 1 for cells 64 - 80.
+     * @return the word of the mask, bit (index % 64) set for every conflicting cell.
+     */
+    public long getConflicts(int word) {
+    	return solvable.conflictMask(word);
+    }
+    
+    /**
+     * Finds the next step the player could take: the easiest logical deduction from the 
+     * values on the board and the pencil marks, or the first wrong value if there is one.
+     * Eliminations the player has made in their pencil marks are taken as done.
+     * 
+     * @return the hint, or null if the board is full or needs more than the techniques 
+     * the hint engine knows.
+     */
+    public Hint getHint() {
+    	for (int i = 0; i < 9; i++) {
+    		for (int j = 0; j < 9; j++) {
+    			if (solvable.isChangeable(i, j) && getCell(i, j) != EMPTY && !isValidMove(i, j, getCell(i, j))) {
+    				return Hint.mistake(i * 9 + j);
+    			}
+    		}
+    	}
+    	// marks that rule out the solution are ignored rather than reasoned from
+    	for (int index = 0; index < 81; index++) {
+    		int marks = pencilMarks[index];
+    		hintMarks[index] = (marks & 1 << (completed.getCell(index / 9, index % 9) - 1)) != 0 ? (short) marks : 0;
+    	}
+    	if (hintSolver == null) {
+    		hintSolver = new HumanSolver(solvable);
+    	}
+    	hintSolver.reset(solvable, hintMarks);
+    	hintSolver.step();
+    	return hintSolver.getHint();
+    }
+    
+    /**
+     * Solves the current instance of the game, as a single move that is undone together
      */
     public void solve() {
+    	beginAction();
     	for (int i = 0; i < 9; i++) {
     		for (int j = 0; j < 9; j++) {
     			if (solvable.isChangeable(i,  j)) {
-    				solvable.setCell(i, j, completed.getCell(i, j));
+    				play(i * 9 + j, completed.getCell(i, j), 0);
     			}
     		}
     	}
     }
     /**
-     * Saves the current instance of the game
+     * Saves the current instance of the game, together with the time played and its 
+     * difficulty, to a single file that is replaced atomically.
+     * 
+     * @param elapsedSeconds the time played so far.
+     * @param difficulty the difficulty of the game.
+     * @throws IOException if the game cannot be saved; any previous save is kept.
      */
-    public void save() {
-    	try {
-			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream("GameManager.ser"));
-			out.writeObject(completed);
-			out.writeObject(solvable);
-			out.close();
-		} catch (FileNotFoundException e1) {
-
-		} catch (IOException e1) {
-	
-		}	
+    public void save(int elapsedSeconds, Difficulty difficulty) throws IOException {
+    	new SavedGame(completed, solvable, pencilMarks, elapsedSeconds, difficulty).write(new File(SAVE_FILE));
+    }
+    
+    /**
+     * Loads the last saved instance of a game. Saves made by earlier versions, as 
+     * serialized boards and timer information, are read when no current save exists.
+     * 
+     * @return the saved game, for its time and difficulty.
+     * @throws IOException if there is no save or it cannot be read.
+     */
+    public SavedGame load() throws IOException {
+    	File file = new File(SAVE_FILE);
+    	SavedGame saved;
+    	if (file.exists()) {
+    		saved = SavedGame.read(file);
+    	} else {
+    		saved = SavedGame.readLegacy(new File(LEGACY_GAME_FILE), new File(LEGACY_INFO_FILE));
+    	}
+    	completed = saved.createSolution();
+    	solvable = saved.createBoard();
+    	pencilMarks = saved.getPencilMarks();
+    	difficulty = saved.getDifficulty();
+    	elapsedSeconds = saved.getElapsedSeconds();
+    	rebuildCandidates();
+    	startJournal();
+    	return saved;
+    }
+    
+    /**
+     * Returns the last autosave failure the player has not been told about, and forgets it.
+     * 
+     * @return a description of the failure, or null if autosave has not failed since the 
+     * last call.
+     */
+    public String takeAutosaveError() {
+    	String error = autosaveError;
+    	autosaveError = null;
+    	return error;
+    }
+    
+    /**
+     * Forces the move journal to disk and stops background work, before the application 
+     * exits.
+     */
+    public void close() {
+    	puzzlePool.shutdown();
+    	if (journal != null) {
+    		try {
+    			journal.close();
+    		} catch (IOException e) {
+    			reportAutosaveError("The last moves may not have been autosaved", e);
+    		}
+    		journal = null;
+    	}
+    }
+    
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+//--------------------------------Private methods-------------------------------
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+    /**
+     * Starts a move, undo, redo or auto-fill: empties the changed cells and makes the 
+     * next move recorded the first of its group.
+     */
+    private void beginAction() {
+    	changedCount = 0;
+    	changedLow = 0;
+    	changedHigh = 0;
+    	linking = false;
     }
+    
     /**
-     * Loads the last saved instance of a game
+     * Makes a move, recording it in the history so it can be undone. Every move after 
+     * the first of an action is linked to the one before, so the action is undone as a 
+     * whole. Making a move discards the moves that were undone, and once the history 
+     * holds HISTORY_SIZE moves every new one overwrites the oldest.
+     * 
+     * @param index the index (row * 9 + column) of the cell.
+     * @param value the new value of the cell, EMPTY to clear it.
+     * @param marks the new pencil marks of the cell.
      */
-    public void load() {
+    private void play(int index, int value, int marks) {
+    	int oldValue = getCell(index / 9, index % 9);
+    	int oldMarks = pencilMarks[index];
+    	if (oldValue == value && oldMarks == marks) {
+    		return;
+    	}
+    	// index, old value, new value, old marks and new marks in 7 + 4 + 4 + 9 + 9 bits
+    	history[(historyStart + undoable) % HISTORY_SIZE] = index | oldValue << 7 | value << 11
+    			| (long) oldMarks << 15 | (long) marks << 24 | (linking ? LINKED : 0);
+    	linking = true;
+    	if (undoable == HISTORY_SIZE) {
+    		historyStart = (historyStart + 1) % HISTORY_SIZE;
+    	} else {
+    		undoable++;
+    	}
+    	redoable = 0;
+    	apply(index, value, marks);
+    }
+    
+    /**
+     * Sets the value and pencil marks of a cell, journals whatever changed and adds the 
+     * cell to the changed cells. A new value updates the candidates of the cell and its 
+     * peers.
+     */
+    private void apply(int index, int value, int marks) {
+    	int row = index / 9;
+    	int column = index % 9;
+    	if (getCell(row, column) != value) {
+    		if (value == EMPTY) {
+    			solvable.removeValue(row, column);
+    		} else {
+    			solvable.setCell(row, column, value);
+    		}
+    		journalValue(row, column);
+    		updateCandidates(index);
+    		for (int peer : BoardGeometry.PEERS[index]) {
+    			updateCandidates(peer);
+    		}
+    	}
+    	if (pencilMarks[index] != marks) {
+    		pencilMarks[index] = (short) marks;
+    		journalMarks(row, column);
+    	}
+    	// cells 0 - 63 in changedLow, 64 - 80 in changedHigh
+    	long bit = 1L << index;
+    	if (index < 64 ? (changedLow & bit) == 0 : (changedHigh & bit) == 0) {
+    		if (index < 64) {
+    			changedLow |= bit;
+    		} else {
+    			changedHigh |= bit;
+    		}
+    		changedCells[changedCount++] = index;
+    	}
+    }
+    
+    /**
+     * Recomputes the candidates of a cell from the values of its peers.
+     */
+    private void updateCandidates(int index) {
+    	int row = index / 9;
+    	int column = index % 9;
+    	candidates[index] = (short) (solvable.cellIsEmpty(row, column) ? solvable.candidates(row, column) : 0);
+    }
+    
+    /**
+     * Recomputes the candidates of every cell, for a game just started, loaded or resumed.
+     */
+    private void rebuildCandidates() {
+    	for (int index = 0; index < 81; index++) {
+    		updateCandidates(index);
+    	}
+    }
+    
+    /**
+     * Empties the move history and the move journal, and snapshots the game just started, 
+     * loaded or resumed.
+     */
+    private void startJournal() {
+    	undoable = 0;
+    	redoable = 0;
+    	if (journal != null) {
+    		try {
+    			journal.reset(new SavedGame(completed, solvable, pencilMarks, elapsedSeconds, difficulty));
+    		} catch (IOException e) {
+    			stopJournal(e);
+    		}
+    	}
+    }
+    
+    /**
+     * Journals the value a cell now holds.
+     */
+    private void journalValue(int row, int column) {
+    	if (journal != null) {
+    		try {
+    			journal.recordValue(row * 9 + column, getCell(row, column));
+    		} catch (IOException e) {
+    			stopJournal(e);
+    		}
+    	}
+    	compactJournal();
+    }
+    
+    /**
+     * Journals the pencil marks a cell now holds.
+     */
+    private void journalMarks(int row, int column) {
+    	if (journal != null) {
+    		try {
+    			journal.recordMarks(row * 9 + column, pencilMarks[row * 9 + column]);
+    		} catch (IOException e) {
+    			stopJournal(e);
+    		}
+    	}
+    	compactJournal();
+    }
+    
+    /**
+     * Hands a snapshot of the game to the journal once it holds COMPACT_RECORDS records;
+     * the snapshot is written in the background.
+     */
+    private void compactJournal() {
+    	if (journal != null && journal.getRecords() >= COMPACT_RECORDS) {
+    		journal.compact(new SavedGame(completed, solvable, pencilMarks, elapsedSeconds, difficulty));
+    	}
+    }
+    
+    /**
+     * Gives up autosaving after a journal write failed, so a stale journal is never 
+     * replayed, and reports why.
+     * 
+     * @param cause the failure of the journal.
+     */
+    private void stopJournal(IOException cause) {
+    	reportAutosaveError("Autosave is off", cause);
     	try {
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream("GameManager.ser"));
-			completed = (CompletedBoard)in.readObject();
-			solvable = (SolvableBoard)in.readObject();
-			in.close();	
-		} catch (FileNotFoundException e) {
-		} catch (IOException e) {
-		} catch (ClassNotFoundException e) {
-		}
+    		journal.close();
+    	} catch (IOException e) {
+    		// the journal has already failed; its autosave is deleted below
+    	}
+    	journal = null;
+    	new File(AUTOSAVE_FILE).delete();
+    }
+    
+    /**
+     * Reports an autosave failure on the error stream and keeps it for the player.
+     */
+    private void reportAutosaveError(String message, IOException cause) {
+    	System.err.println(message + ": " + cause.getMessage());
+    	if (autosaveError == null) {
+    		autosaveError = message + ": " + cause.getMessage();
+    	}
     }
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -183,6 +661,17 @@ public class GameManager implements Serializable {
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
     public static final int EMPTY = 0;
+    public static final String PUZZLE_BANK_FILE = "PuzzleBank.dat";
+    public static final String SAVE_FILE = "SavedGame.dat";
+    // the snapshot and journal the game in progress is rebuilt from after a crash
+    public static final String AUTOSAVE_FILE = "Autosave.dat";
+    public static final String JOURNAL_FILE = "Autosave.journal";
+    public static final int COMPACT_RECORDS = 512;
+    // the number of moves that can be undone
+    public static final int HISTORY_SIZE = 4096;
+    // the files games were saved to before the binary format
+    public static final String LEGACY_GAME_FILE = "GameManager.ser";
+    public static final String LEGACY_INFO_FILE = "InfoManager.ser";
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -191,5 +680,30 @@ public class GameManager implements Serializable {
 //------------------------------------------------------------------------------
 	private CompletedBoard completed;
 	private SolvableBoard solvable;
+	private short[] pencilMarks;
+	private Difficulty difficulty;
+	private int elapsedSeconds;
+	private transient MoveJournal journal;
+	private transient String autosaveError;
+	private transient HumanSolver hintSolver;
+	// the pencil marks the hint engine narrows candidates by
+	private transient short[] hintMarks;
+	// a ring of moves starting at historyStart: undoable moves, then redoable ones
+	private transient long[] history;
+	private transient int historyStart;
+	private transient int undoable;
+	private transient int redoable;
+	// set on a move of the history made by the same action as the move before it
+	private static final long LINKED = 1L << 33;
+	private transient boolean linking;
+	// the values no peer holds, for every empty cell
+	private transient short[] candidates;
+	// the cells changed by the last action, without repeats
+	private transient int[] changedCells;
+	private transient int changedCount;
+	private transient long changedLow;
+	private transient long changedHigh;
+	private transient PuzzlePool puzzlePool;
+	private transient PuzzleBank puzzleBank;
 	private static final long serialVersionUID = -2796793713818390903L;
 }
@@ -117,42 +117,14 @@ public class InfoManager implements Serializable {
 		}
     }
     /**
-     * Saves the information of the current game
-     */
-    public void save() {    	
-    	try {
-			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream("InfoManager.ser"));
-			out.writeObject((Integer)time);
-			out.writeObject(currentDifficulty);
-			out.close();
-		} catch (FileNotFoundException e1) {
-
-		} catch (IOException e1) {
-	
-		}	
-    }
-    /**
-     * Loads the information of the last saved game
+     * Restores the information of a saved game
      * 
-     * @return True if successful, False otherwise
+     * @param time Time played before the game was saved
+     * @param difficulty Difficulty of the saved game
      */
-    public boolean load() {
-		loadHighscores();
-    	
-    	try {
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream("InfoManager.ser"));
-			time = (Integer)in.readObject();
-			currentDifficulty = (Difficulty)in.readObject();
-			in.close();
-				
-			return true;		
-		} catch (FileNotFoundException e) {
-			return false;
-		} catch (IOException e) {
-			return false;
-		} catch (ClassNotFoundException e) {
-			return false;
-		}
+    public void restore(int time, Difficulty difficulty) {
+    	this.time = time;
+    	currentDifficulty = difficulty;
     }
     /**
      * Increments the time of the current game
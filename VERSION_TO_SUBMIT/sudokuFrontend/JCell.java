@@ -3,7 +3,6 @@ import java.awt.Color;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridLayout;
-import java.util.Stack;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -36,75 +35,60 @@ public class JCell extends JPanel {
     	currentValue.setText(Integer.toString(value));
     }
     /**
-     * Sets a changeable value on the JCell
+     * Shows the given pencil marks, or the given value if there are none. The cell is 
+     * not laid out again; the caller revalidates the board once it has set every cell.
      * 
-     * @param value Value to be displayed
+     * @param value Value to be displayed, 0 if empty
+     * @param marks Pencil marks to be displayed, bit value - 1 set for every value marked
      */
-    public void toggleMark(int value) {
-    	setMarkMode(true);
-    	if (pencilMarks[value - 1].getText().equals(" ")) {
-    		pencilMarks[value - 1].setText(Integer.toString(value));
-    		addOrder.push(value);
+    public void setState(int value, int marks) {
+    	if (marks != 0) {
+    		setMarkMode(true);
+    		for (int i = 0; i < 9; i++) {
+    			if ((marks & 1 << i) != 0) {
+    				pencilMarks[i].setText(Integer.toString(i + 1));
+    			} else {
+    				pencilMarks[i].setText(" ");
+    			}
+    		}
     	} else {
-    	    pencilMarks[value - 1].setText(" ");
-    	    addOrder.remove((Integer)value);
+    		setMarkMode(false);
+    		currentValue.setText(value == 0 ? " " : Integer.toString(value));
     	}
     }
     /**
-     * Removes a pencil mark from the JCell, given a value
+     * Colours the value shown in this JCell, e.g. to mark it as clashing
      * 
-     * @param value Value to be removed
+     * @param colour Colour of the value, null for the default colour
      */
-    public void removeMark(int value) {
-    	pencilMarks[value - 1].setText(" ");
-    }
-    /**
-     * Sets a changeable value to be displayed in the JCell
-     * 
-     * @param value Value to be displayed
-     */
-    public void toggleValue(int value) {  	
-    	setMarkMode(false);
-    	if (currentValue.getText().equals(((Integer)value).toString())) {
-    		currentValue.setText(" ");
-    	} else {
-    		currentValue.setText(Integer.toString(value));	
-    	}
+    public void setValueColour(Color colour) {
+    	currentValue.setForeground(colour);
     }
     /**
      * Selects this JCell
      */
     public void select() {  	
+    	selected = true;
     	setBackground(Color.lightGray);
     }
     /**
      * Unselects this JCell
      */
     public void unSelect() {
-    	setBackground(Color.white);
+    	selected = false;
+    	setBackground(highlight == null ? Color.white : highlight);
     }
     /**
-     * Removes the value in this JCell
-     */
-    public void removeValue() {
-    	currentValue.setText(" ");
-    }
-    /**
-     * Clears a value in this JCell, or removes the last added pencil marking
+     * Highlights this JCell with a colour, shown whenever it is not selected
+     * 
+     * @param colour Colour of the highlight, null to remove it
      */
-    public void clear() {
-    	if (markMode) {
-    		clearMark();
-    	} else {
-    		removeValue();
+    public void setHighlight(Color colour) {
+    	highlight = colour;
+    	if (!selected) {
+    		setBackground(highlight == null ? Color.white : highlight);
     	}
     }
-    /**
-     * Removes the last added pencil marking
-     */
-    public void clearMark() {
-    	removeMark(addOrder.pop());
-    }
     /**
      * Sets whether this JCell is in marking mode or not
      * 
@@ -113,8 +97,6 @@ public class JCell extends JPanel {
     private void setMarkMode(Boolean isMarkMode) {
     	if (markMode != isMarkMode) {
     		removeAll();
-    		revalidate();
-    		repaint();
 	    	if (isMarkMode) {
 	    		markMode = true;
 	    		setLayout(new GridLayout(3, 3));
@@ -122,7 +104,6 @@ public class JCell extends JPanel {
 	    		    pencilMarks[i].setText(" ");
 	    			add(pencilMarks[i]);
 	    		}
-	    		addOrder = new Stack<Integer>();
 	    	} else {
 	    		markMode = false;
 	    		setLayout(new FlowLayout());
@@ -134,7 +115,8 @@ public class JCell extends JPanel {
     
 	private static final long serialVersionUID = -2120110035061866139L;
     private Boolean markMode;
+    private boolean selected;
+    private Color highlight;
     private JLabel currentValue;
     private JLabel[] pencilMarks;
-    private Stack<Integer> addOrder;
 }
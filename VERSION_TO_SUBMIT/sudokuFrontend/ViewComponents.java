@@ -8,6 +8,8 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseListener;
 import java.io.IOException;
@@ -27,6 +29,7 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JTextArea;
 import javax.swing.JToggleButton;
+import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.event.HyperlinkEvent;
@@ -76,6 +79,7 @@ public class ViewComponents extends JFrame {
      */
     public void initialise(Difficulty difficulty) {
     	initCells();
+    	highlighted = false;
     	remove(board);
     	remove(gameArea);
     	remove(infoArea);
@@ -108,23 +112,61 @@ public class ViewComponents extends JFrame {
     		cells[row][column].setPermanentValue(value);
     }
     /**
-     * Sets a changeable cell in the display, given a value
-     *    
-     * @param row Row of cell
-     * @param column Column of cell
-     * @param value Value to set
+     * Shows a batch of changeable cells as they are held by the game: their pencil marks 
+     * if they have any, and otherwise their value. The board is laid out and repainted 
+     * once for all of them.
+     * 
+     * @param indices Indices (row * 9 + column) of the cells
+     * @param count Number of cells to show, from the start of the arrays
+     * @param values Values of the cells, 0 if empty
+     * @param marks Pencil marks of the cells, bit value - 1 set for every value marked
      */
-    public void toggleCell(int row, int column, int value) {
-		cells[row][column].toggleValue(value);
+    public void setCells(int[] indices, int count, int[] values, int[] marks) {
+    	for (int k = 0; k < count; k++) {
+    		cells[indices[k] / 9][indices[k] % 9].setState(values[k], marks[k]);
+    	}
+    	board.revalidate();
+    	board.repaint();
     }
     /**
-     * Clears a specified cell in the display.
+     * Highlights the cells of a hint, the cell it fills in a stronger colour.
+     * Any previous highlight is removed.
+     * 
+     * @param indices Indices (row * 9 + column) of the cells the hint is deduced from
+     * @param target Index of the cell the hint fills or the wrong cell, -1 for none
+     */
+    public void highlightCells(int[] indices, int target) {
+    	clearHighlights();
+    	for (int index : indices) {
+    		cells[index / 9][index % 9].setHighlight(HINT_COLOUR);
+    	}
+    	if (target >= 0) {
+    		cells[target / 9][target % 9].setHighlight(HINT_TARGET_COLOUR);
+    	}
+    	highlighted = true;
+    }
+    /**
+     * Removes the highlight of a hint from every cell
+     */
+    public void clearHighlights() {
+    	if (highlighted) {
+    		for (int i = 0; i < 9; i++) {
+    			for (int j = 0; j < 9; j++) {
+    				cells[i][j].setHighlight(null);
+    			}
+    		}
+    		highlighted = false;
+    	}
+    }
+    /**
+     * Shows whether the value of a specified cell clashes with another cell
      * 
      * @param row Row of cell
      * @param column Column of cell
+     * @param conflicting True if the value of the cell is repeated in its row, column or box
      */
-    public void clearCell(int row, int column) {
-    	cells[row][column].clear();
+    public void setConflict(int row, int column, boolean conflicting) {
+    	cells[row][column].setValueColour(conflicting ? CONFLICT_COLOUR : null);
     }
     /**
      * Selects a specified cell in the display
@@ -144,16 +186,6 @@ public class ViewComponents extends JFrame {
     public void unselectCell(int row, int column) {
     	cells[row][column].unSelect();
     }
-    /**
-     * Adds a pencil marking to a specified cell, given a value
-     * 
-     * @param row Row of cell
-     * @param column Column of cell
-     * @param value Value to be set
-     */
-    public void addPencilCell(int row, int column, int value) {
-    	cells[row][column].toggleMark(value);
-    }
     /**
      * Toggles whether the display is in pencil marking mode or not
      */
@@ -180,7 +212,7 @@ public class ViewComponents extends JFrame {
      * @param listener Array of action listeners
      */
     public void addGameMenuListener(ActionListener[] listener) {
-    	for (int i = 0; i < 7; i++) {
+    	for (int i = 0; i < 11; i++) {
     		gameMenuItems[i].addActionListener(listener[i]);
     	}
     }
@@ -375,7 +407,7 @@ public class ViewComponents extends JFrame {
      * Initializes the game menu
      */
     private void initGameMenu() {
-    	gameMenuItems = new JMenuItem[10];
+    	gameMenuItems = new JMenuItem[11];
     	gameMenu = new JMenu("Game");
     	JMenu submenu = new JMenu("New Game");
     	gameMenuItems[0] = new JMenuItem("Easy");
@@ -391,6 +423,18 @@ public class ViewComponents extends JFrame {
     	gameMenu.add(gameMenuItems[4]);
     	gameMenuItems[5] = new JMenuItem("Load Game");
     	gameMenu.add(gameMenuItems[5]);
+    	gameMenuItems[7] = new JMenuItem("Undo");
+    	gameMenuItems[7].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+    	gameMenu.add(gameMenuItems[7]);
+    	gameMenuItems[8] = new JMenuItem("Redo");
+    	gameMenuItems[8].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+    	gameMenu.add(gameMenuItems[8]);
+    	gameMenuItems[9] = new JMenuItem("Hint");
+    	gameMenuItems[9].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.CTRL_DOWN_MASK));
+    	gameMenu.add(gameMenuItems[9]);
+    	gameMenuItems[10] = new JMenuItem("Fill Pencil Marks");
+    	gameMenuItems[10].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK));
+    	gameMenu.add(gameMenuItems[10]);
     	gameMenuItems[6] = new JMenuItem("Exit");
     	gameMenu.add(gameMenuItems[6]);
     }
@@ -476,6 +520,10 @@ public class ViewComponents extends JFrame {
 	private JPanel infoArea;
 	private JLabel timeLabel;
 	private JCell[][] cells;
+	private boolean highlighted;
+	private static final Color HINT_COLOUR = new Color(255, 244, 190);
+	private static final Color HINT_TARGET_COLOUR = new Color(255, 214, 120);
+	private static final Color CONFLICT_COLOUR = new Color(200, 30, 30);
 	private boolean pencilMarkMode;
 	private JButton[] keypad;
 	private JButton deleteButton;